@@ -0,0 +1,45 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class BenchmarkSettings extends DynamicSettings {
+
+    public BenchmarkSettings() {
+        this(10);
+    }
+
+    public BenchmarkSettings(int size) {
+        for (int i = 0; i < size; i++) {
+            switch (i % 4) {
+                case 0 -> register("int" + i, i);
+                case 1 -> register("double" + i, i * 0.5);
+                case 2 -> register("string" + i, "value" + i);
+                case 3 -> register("boolean" + i, (Boolean) (i % 8 == 3));
+            }
+        }
+    }
+
+    public static BenchmarkSettings withList(int elements) {
+        BenchmarkSettings settings = new BenchmarkSettings(0);
+        String[] values = new String[elements];
+        for (int i = 0; i < elements; i++) {
+            values[i] = "element" + i;
+        }
+        settings.registerList("list", v -> new StringSetting("", v), values);
+        return settings;
+    }
+
+    public static BenchmarkSettings withMap(int elements) {
+        BenchmarkSettings settings = new BenchmarkSettings(0);
+        Map<String, Integer> values = new HashMap<>();
+        for (int i = 0; i < elements; i++) {
+            values.put("key" + i, i);
+        }
+        settings.registerMap("map", Integer.class, v -> new PrimitiveSetting<>("", v), values);
+        return settings;
+    }
+
+}
@@ -0,0 +1,95 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("unchecked")
+public class CollectionSettingBenchmark {
+
+    @Param({"1000", "100000"})
+    public int elements;
+
+    @Param({"list", "map"})
+    public String kind;
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private SettingsCodec settingsCodec;
+    private BenchmarkSettings settings;
+    private BenchmarkSettings target;
+    private ByteArrayOutputStream buffer;
+    private byte[] serialized;
+    private DynamicSettings.Setting<Object> element;
+    private Object[] elementValues;
+    private int edits;
+
+    private BenchmarkSettings create() {
+        return this.kind.equals("list") ? BenchmarkSettings.withList(this.elements) : BenchmarkSettings.withMap(this.elements);
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        this.settingsCodec = SettingsCodec.byName(this.codec);
+        this.settings = this.create();
+        this.buffer = new ByteArrayOutputStream();
+        SettingsWriter writer = this.settingsCodec.writer(this.buffer);
+        this.settings.serialize(writer);
+        writer.flush();
+        this.serialized = this.buffer.toByteArray();
+
+        DynamicSettings.Setting<?> collection = this.settings.getSettings().iterator().next();
+        Object first = collection instanceof DynamicSettings.ListSetting<?, ?> list ? list.get().get(0) : ((DynamicSettings.MapSetting<?, ?>) collection).get().values().iterator().next();
+        this.element = (DynamicSettings.Setting<Object>) first;
+        Object value = this.element.get();
+        this.elementValues = new Object[] { value, value instanceof String s ? s + "!" : (Integer) value + 1 };
+    }
+
+    @Setup(Level.Invocation)
+    public void freshTarget() {
+        this.target = this.create();
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        this.buffer.reset();
+        SettingsWriter writer = this.settingsCodec.writer(this.buffer);
+        this.settings.serialize(writer);
+        writer.flush();
+        return this.buffer.size();
+    }
+
+    @Benchmark
+    public BenchmarkSettings deserialize() throws IOException {
+        this.target.deserialize(this.settingsCodec.reader(new ByteArrayInputStream(this.serialized)));
+        return this.target;
+    }
+
+    /**
+     * the delta for one element edit, which is sent as a patch instead of the whole collection
+     */
+    @Benchmark
+    public int serializeElementChange() throws IOException {
+        long since = this.settings.getModCount();
+        this.element.set(this.elementValues[++this.edits & 1]);
+        this.buffer.reset();
+        SettingsWriter writer = this.settingsCodec.writer(this.buffer);
+        this.settings.serializeChanges(writer, since);
+        writer.flush();
+        return this.buffer.size();
+    }
+
+}
@@ -0,0 +1,54 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.SchemaSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Speaks the {@link SubProcess} protocol without Swing, every open is decoded and then immediately acknowledged and
+ * closed. It beats like the real child, so the host's watchdog leaves it running.
+ */
+public class HeadlessStubChild {
+
+    public static void main(String[] args) throws Exception {
+        SettingsCodec codec = SettingsCodec.byName(args.length > 1 ? args[1] : "binary");
+        FrameWriter out = new FrameWriter(System.out, codec);
+        AtomicLong handled = new AtomicLong();
+        Thread heartbeat = new Thread(() -> {
+            try {
+                while (true) {
+                    synchronized (out) {
+                        out.begin(Protocol.HEARTBEAT, -1).writeLong(handled.get());
+                        out.end();
+                    }
+                    Thread.sleep(Protocol.HEARTBEAT_INTERVAL);
+                }
+            } catch (IOException | InterruptedException ignored) {
+            }
+        }, "HeadlessStubChild heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+        FrameReader reader = new FrameReader(System.in, codec);
+        int type;
+        while ((type = reader.next()) != -1) {
+            handled.incrementAndGet();
+            if (type == Protocol.OPEN) {
+                reader.data().readUTF();
+            } else if (type == Protocol.OPEN_SCHEMA) {
+                new SchemaSettings(reader.data());
+            } else {
+                continue;
+            }
+            reader.settings().skipValue();
+            synchronized (out) {
+                out.begin(Protocol.OPENED, reader.session()).writeLong(0);
+                out.end();
+                out.send(Protocol.SHOWN, reader.session());
+                out.send(Protocol.CLOSED, reader.session());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trip from {@link EditorHost#open} to the child's answer, against {@link HeadlessStubChild} which acknowledges
+ * and closes instead of showing a window.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+public class OpenConfigBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private BenchmarkSettings settings;
+    private EditorHost host;
+
+    @Setup
+    public void setup() {
+        this.settings = new BenchmarkSettings(this.size);
+        this.host = new EditorHost(Duration.ofMinutes(1), SettingsCodec.BINARY, HeadlessStubChild.class.getName());
+    }
+
+    @TearDown
+    public void teardown() {
+        this.host.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 5)
+    public Object coldOpen() throws Exception {
+        this.host.stop();
+        return this.host.open(this.settings).get();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Warmup(iterations = 3, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    public Object warmOpen() throws Exception {
+        return this.host.open(this.settings).get();
+    }
+
+}
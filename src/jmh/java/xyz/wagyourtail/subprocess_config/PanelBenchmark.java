@@ -0,0 +1,39 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettingsPanel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lightweight Swing components can be built without a display, so this runs with {@code java.awt.headless=true}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PanelBenchmark {
+
+    @Param({"10", "1000"})
+    public int size;
+
+    private BenchmarkSettings settings;
+
+    @Setup
+    public void setup() {
+        this.settings = new BenchmarkSettings(this.size);
+    }
+
+    @Benchmark
+    public DynamicSettingsPanel construct() {
+        return new DynamicSettingsPanel(this.settings, DynamicSettingsPanel.View.FORM);
+    }
+
+    @Benchmark
+    public DynamicSettingsPanel constructTable() {
+        return new DynamicSettingsPanel(this.settings, DynamicSettingsPanel.View.TABLE);
+    }
+
+}
@@ -0,0 +1,70 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.openjdk.jmh.annotations.*;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettingsBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private SettingsCodec settingsCodec;
+    private BenchmarkSettings settings;
+    private BenchmarkSettings other;
+    private ByteArrayOutputStream buffer;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        this.settingsCodec = SettingsCodec.byName(this.codec);
+        this.settings = new BenchmarkSettings(this.size);
+        this.other = new BenchmarkSettings(this.size);
+        this.buffer = new ByteArrayOutputStream();
+        SettingsWriter writer = this.settingsCodec.writer(this.buffer);
+        this.settings.serialize(writer);
+        writer.flush();
+        this.serialized = this.buffer.toByteArray();
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        this.buffer.reset();
+        SettingsWriter writer = this.settingsCodec.writer(this.buffer);
+        this.settings.serialize(writer);
+        writer.flush();
+        return this.buffer.size();
+    }
+
+    @Benchmark
+    public BenchmarkSettings deserialize() throws IOException {
+        this.other.deserialize(this.settingsCodec.reader(new ByteArrayInputStream(this.serialized)));
+        return this.other;
+    }
+
+    @Benchmark
+    public BenchmarkSettings copyTo() {
+        this.settings.copyTo(this.other);
+        return this.other;
+    }
+
+    @Benchmark
+    public BenchmarkSettings copyFrom() {
+        return this.other.copyFrom(this.settings);
+    }
+
+}
@@ -0,0 +1,227 @@
+package xyz.wagyourtail.subprocess_config;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the command line for a child JVM. By default the child gets flags that favor startup over throughput, and a
+ * dynamic AppCDS archive of the classes it loads: the first launch for a given java and classpath dumps it on exit,
+ * later launches map it instead of loading and verifying those classes again. Archiving needs a classpath of only jars,
+ * so children run from a directory of classes just skip it.
+ * <p>
+ * Archives are kept in a per-user cache directory. Each child dumps to a file of its own, which only replaces the
+ * archive once the child has exited cleanly, so children launched together never map a half-written archive.
+ * <p>
+ * JVM logging always goes to stderr, since the child's stdout carries frames.
+ * <p>
+ * Extra JVM options for a deployment can be passed in the {@value #OPTIONS_PROPERTY} system property, separated by
+ * spaces. They come last, so they override the defaults.
+ */
+public class ChildLauncher {
+    private static final System.Logger LOGGER = System.getLogger(ChildLauncher.class.getName());
+    private static final AtomicInteger DUMPS = new AtomicInteger();
+    public static final String OPTIONS_PROPERTY = "subprocess_config.childJvmOptions";
+    /**
+     * keeps warnings such as an unusable archive out of stdout
+     */
+    public static final List<String> LOG_OPTIONS = List.of(
+        "-Xlog:disable",
+        "-Xlog:all=warning:stderr"
+    );
+    public static final List<String> STARTUP_OPTIONS = List.of(
+        "-XX:+UseSerialGC",
+        "-XX:TieredStopAtLevel=1",
+        "-Xms16m",
+        "-Xmx256m",
+        "-Xss512k"
+    );
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final String java;
+    private final String mainClass;
+    private final List<String> options;
+    private final Path cdsDirectory;
+
+    private ChildLauncher(Builder builder) {
+        this.java = builder.java;
+        this.mainClass = builder.mainClass;
+        List<String> options = new ArrayList<>(builder.options);
+        String overrides = System.getProperty(OPTIONS_PROPERTY);
+        if (overrides != null && !overrides.isBlank()) {
+            options.addAll(Arrays.asList(overrides.trim().split("\\s+")));
+        }
+        this.options = List.copyOf(options);
+        this.cdsDirectory = builder.cdsDirectory;
+    }
+
+    public String getMainClass() {
+        return this.mainClass;
+    }
+
+    public Path getCdsDirectory() {
+        return this.cdsDirectory;
+    }
+
+    /**
+     * the command for a child that maps the archive if there is one, but never dumps it, see {@link #start}
+     */
+    public List<String> command(String classpath, String... args) {
+        Path archive = this.archive(classpath);
+        return this.command(archive != null && Files.exists(archive) ? "-XX:SharedArchiveFile=" + archive : null, classpath, args);
+    }
+
+    private List<String> command(String archiveOption, String classpath, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(this.java);
+        command.addAll(LOG_OPTIONS);
+        if (archiveOption != null) command.add(archiveOption);
+        command.addAll(this.options);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(this.mainClass);
+        command.addAll(Arrays.asList(args));
+        return command;
+    }
+
+    public ProcessBuilder processBuilder(String classpath, String... args) {
+        return new ProcessBuilder(this.command(classpath, args));
+    }
+
+    /**
+     * starts a child with stderr inherited. If there's no archive yet the child dumps one to a file of its own, which
+     * is moved into place if it exits cleanly.
+     */
+    public Process start(String classpath, String... args) throws IOException {
+        Path archive = this.archive(classpath);
+        if (archive == null || Files.exists(archive)) {
+            return this.processBuilder(classpath, args).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        }
+        Path dump = archive.resolveSibling(archive.getFileName() + "." + ProcessHandle.current().pid() + "-" + DUMPS.incrementAndGet() + ".tmp");
+        Process process = new ProcessBuilder(this.command("-XX:ArchiveClassesAtExit=" + dump, classpath, args))
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        process.onExit().thenAccept(p -> {
+            try {
+                if (p.exitValue() == 0 && Files.size(dump) > 0) {
+                    Files.move(dump, archive, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    return;
+                }
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.DEBUG, "Failed to keep CDS archive {0}", dump);
+            }
+            try {
+                Files.deleteIfExists(dump);
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.DEBUG, "Failed to delete CDS archive {0}", dump);
+            }
+        });
+        return process;
+    }
+
+    /**
+     * @return where the archive for this classpath lives, or null if archiving is disabled or not possible for it
+     */
+    private Path archive(String classpath) {
+        if (this.cdsDirectory == null) return null;
+        // the jvm refuses to archive with a non-empty directory on the classpath, and checks jars by size and
+        // modification time, so those go in the key
+        StringBuilder key = new StringBuilder();
+        key.append(this.java).append('\n').append(System.getProperty("java.vm.version")).append('\n').append(this.mainClass).append('\n').append(String.join(" ", this.options));
+        for (String entry : classpath.split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (!Files.isRegularFile(path)) return null;
+            try {
+                key.append('\n').append(path.toAbsolutePath()).append(' ').append(Files.size(path)).append(' ').append(Files.getLastModifiedTime(path).toMillis());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        try {
+            if (Files.getFileStore(Files.createDirectories(this.cdsDirectory)).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                // an archive another user could write is code they could run in the child
+                Files.setPosixFilePermissions(this.cdsDirectory, PosixFilePermissions.fromString("rwx------"));
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Can't create CDS archive directory {0}", this.cdsDirectory);
+            return null;
+        }
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.toString().getBytes(StandardCharsets.UTF_8));
+            return this.cdsDirectory.resolve(HexFormat.of().formatHex(hash, 0, 16) + ".jsa");
+        } catch (NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /**
+     * the user's cache directory, rather than the shared temp directory
+     */
+    private static Path defaultCdsDirectory() {
+        String cache = System.getenv("XDG_CACHE_HOME");
+        if (cache == null || cache.isBlank()) cache = System.getenv("LOCALAPPDATA");
+        Path base = cache != null && !cache.isBlank() ? Path.of(cache) : Path.of(System.getProperty("user.home"), ".cache");
+        return base.resolve("subprocess_config").resolve("cds");
+    }
+
+    public static class Builder {
+        private String java = MainProcess.getJava();
+        private String mainClass = SubProcess.class.getName();
+        private final List<String> options = new ArrayList<>(STARTUP_OPTIONS);
+        private Path cdsDirectory = defaultCdsDirectory();
+
+        private Builder() {
+        }
+
+        public Builder java(String java) {
+            this.java = java;
+            return this;
+        }
+
+        public Builder mainClass(String mainClass) {
+            this.mainClass = mainClass;
+            return this;
+        }
+
+        /**
+         * drops the default {@link #STARTUP_OPTIONS}, options added so far stay
+         */
+        public Builder withoutStartupOptions() {
+            this.options.removeAll(STARTUP_OPTIONS);
+            return this;
+        }
+
+        public Builder option(String... options) {
+            this.options.addAll(Arrays.asList(options));
+            return this;
+        }
+
+        /**
+         * @param cdsDirectory where to keep AppCDS archives, or null to not use one
+         */
+        public Builder cdsDirectory(Path cdsDirectory) {
+            this.cdsDirectory = cdsDirectory;
+            return this;
+        }
+
+        public ChildLauncher build() {
+            return new ChildLauncher(this);
+        }
+    }
+
+}
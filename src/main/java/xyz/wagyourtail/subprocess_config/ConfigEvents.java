@@ -0,0 +1,123 @@
+package xyz.wagyourtail.subprocess_config;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * JFR events for editor sessions, recorded in both the parent and the child. They cost nothing unless a recording
+ * has them enabled.
+ */
+final class ConfigEvents {
+    private static final String PREFIX = "xyz.wagyourtail.subprocess_config.";
+
+    private ConfigEvents() {
+    }
+
+    @Name(PREFIX + "ChildSpawn")
+    @Label("Editor Child Spawn")
+    @Category({ "Subprocess Config" })
+    @Description("Starting an editor child process")
+    static class ChildSpawn extends Event {
+        @Label("Main Class")
+        String mainClass;
+
+        @Label("Full Classpath")
+        boolean fullClasspath;
+    }
+
+    @Name(PREFIX + "WindowShown")
+    @Label("Editor Window Shown")
+    @Category({ "Subprocess Config" })
+    @Description("The editor child showed a window")
+    static class WindowShown extends Event {
+        @Label("Config")
+        String config;
+
+        @Label("Since Open")
+        @Timespan
+        long sinceOpen;
+
+        @Label("Since Launch")
+        @Description("Only set for the first window of a child")
+        @Timespan
+        long sinceLaunch = -1;
+    }
+
+    @Name(PREFIX + "FrameSent")
+    @Label("Frame Sent")
+    @Category({ "Subprocess Config" })
+    @Description("Building, serializing and writing a protocol frame")
+    static class FrameSent extends Event {
+        @Label("Type")
+        String type;
+
+        @Label("Size")
+        @DataAmount
+        int bytes;
+    }
+
+    @Name(PREFIX + "FrameReceived")
+    @Label("Frame Received")
+    @Category({ "Subprocess Config" })
+    @Description("Handling a protocol frame, including deserializing any settings in it")
+    static class FrameReceived extends Event {
+        @Label("Type")
+        String type;
+
+        @Label("Size")
+        @DataAmount
+        int bytes;
+    }
+
+    @Name(PREFIX + "Session")
+    @Label("Editor Session")
+    @Category({ "Subprocess Config" })
+    @Description("A config open in the editor, from open until the window closed")
+    static class Session extends Event {
+        @Label("Config")
+        String config;
+
+        @Label("Cold")
+        boolean cold;
+
+        @Label("Spawn Time")
+        @Timespan
+        long spawnTime;
+
+        @Label("Time To Open")
+        @Timespan
+        long openTime;
+
+        @Label("Time To Window")
+        @Timespan
+        long windowTime;
+
+        @Label("Messages Sent")
+        long messagesSent;
+
+        @Label("Bytes Sent")
+        @DataAmount
+        long bytesSent;
+
+        @Label("Serialize Time")
+        @Timespan
+        long serializeTime;
+
+        @Label("Messages Received")
+        long messagesReceived;
+
+        @Label("Bytes Received")
+        @DataAmount
+        long bytesReceived;
+
+        @Label("Deserialize Time")
+        @Timespan
+        long deserializeTime;
+    }
+
+}
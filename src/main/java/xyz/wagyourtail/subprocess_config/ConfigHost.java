@@ -0,0 +1,45 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Somewhere configs are edited. Edits apply to the config as they're made, saving keeps them and reverting, or closing
+ * the editor with settings that break a {@link xyz.wagyourtail.subprocess_config.settings.Constraint constraint}, rolls
+ * back to the last save.
+ * <p>
+ * {@link ConfigHosts#getDefault()} picks the implementation that opens fastest where the app runs.
+ *
+ * @see InProcessConfigHost
+ * @see EditorHost
+ * @see PooledConfigHost
+ */
+public interface ConfigHost {
+
+    /**
+     * opens an editor for the config, or returns the open editor's future if it already has one
+     *
+     * @return completes once the editor is closed, or exceptionally if it couldn't be opened or was lost
+     */
+    CompletableFuture<Result> open(DynamicSettings config);
+
+    /**
+     * @return how many configs are open
+     */
+    int getOpenCount();
+
+    /**
+     * closes every editor and releases what the host holds, failing the editors still open
+     */
+    void stop();
+
+    /**
+     * how an editor ended
+     *
+     * @param saved whether the edits were saved at least once, if not the config is as it was when opened
+     */
+    record Result(DynamicSettings config, boolean saved) {
+    }
+
+}
@@ -0,0 +1,62 @@
+package xyz.wagyourtail.subprocess_config;
+
+import java.awt.*;
+
+/**
+ * Picks a {@link ConfigHost} for where the app runs. An app that already has an event dispatch thread has paid for
+ * Swing, and a frame of its own opens in milliseconds, so it edits in-process. Anything else, such as a headless
+ * server or an app on another toolkit, edits in a {@link SubProcess}. A {@link PooledConfigHost} keeps a child
+ * running even while nothing is open, so it's only used when asked for.
+ * <p>
+ * The choice can be forced with the {@value #HOST_PROPERTY} system property, set to {@code in-process},
+ * {@code subprocess} or {@code pooled}.
+ */
+public final class ConfigHosts {
+    public static final String HOST_PROPERTY = "subprocess_config.host";
+
+    private static ConfigHost defaultHost;
+
+    private ConfigHosts() {
+    }
+
+    public static synchronized ConfigHost getDefault() {
+        if (defaultHost == null) {
+            defaultHost = select();
+        }
+        return defaultHost;
+    }
+
+    /**
+     * @return a host for this environment, {@link EditorHost#getDefault()} if that's the one picked
+     */
+    public static ConfigHost select() {
+        String host = System.getProperty(HOST_PROPERTY);
+        if (host != null) {
+            return switch (host) {
+                case "in-process" -> new InProcessConfigHost();
+                case "subprocess" -> EditorHost.getDefault();
+                case "pooled" -> new PooledConfigHost(1);
+                default -> throw new IllegalArgumentException("Unknown " + HOST_PROPERTY + ": " + host);
+            };
+        }
+        if (hasEventDispatchThread() && !GraphicsEnvironment.isHeadless()) return new InProcessConfigHost();
+        return EditorHost.getDefault();
+    }
+
+    /**
+     * looks for the thread by name rather than through AWT, which would load the toolkit in apps that don't use it
+     */
+    private static boolean hasEventDispatchThread() {
+        ThreadGroup root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null) {
+            root = root.getParent();
+        }
+        Thread[] threads = new Thread[root.activeCount() + 16];
+        int count = root.enumerate(threads);
+        for (int i = 0; i < count; i++) {
+            if (threads[i].getName().startsWith("AWT-EventQueue-")) return true;
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,771 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.ValidationException;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+import xyz.wagyourtail.subprocess_config.settings.store.SettingsJournal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * A {@link ConfigHost} that edits in a long-lived {@link SubProcess}. The child stays running between
+ * {@link #open(DynamicSettings)} calls, so JVM boot and Swing initialization are only paid for once. It exits on its
+ * own after being idle for the configured timeout, and is relaunched on the next open.
+ * <p>
+ * Any number of configs can be open at once. They share the one child and its single reader thread, every frame
+ * carries the id of the session it belongs to.
+ * <p>
+ * Configs are sent along with their {@link DynamicSettings#describe schema}, so the child runs with only this library
+ * on its classpath. A config that can't be described is opened by class name instead, which needs a child launched
+ * with the full application classpath. If a child without it still has windows open, a second child is launched for
+ * that config and the first one is left to exit once its windows are closed.
+ * <p>
+ * The contents of {@link DynamicSettings#registerGroup groups} are left out of the open command, and sent when the
+ * child asks for them as the user expands the group.
+ * <p>
+ * Edits are applied with {@link DynamicSettings#update}, so ones that break a
+ * {@link xyz.wagyourtail.subprocess_config.settings.Constraint constraint} are rejected and the editor is told why.
+ * <p>
+ * Every session is measured, see {@link #getMetrics()}, and reported as JFR events under "Subprocess Config".
+ * <p>
+ * A child that doesn't answer within the {@link #setStartupTimeout startup timeout}, or stops sending
+ * {@link Protocol#HEARTBEAT heartbeats} or handling the commands it was sent for the
+ * {@link #setHeartbeatTimeout heartbeat timeout}, is killed. Its sessions
+ * then fail, or with {@link #setRelaunches relaunches} are rolled back to their last commit and opened again in a new
+ * child, so a hung editor never leaves a future waiting or a process running.
+ * <p>
+ * Commands are built and written to the child by a {@link FrameOutbox}, so a child that stops reading only ever blocks
+ * its writer thread, never a caller or the host's lock.
+ */
+public class EditorHost implements ConfigHost {
+    private static final System.Logger LOGGER = System.getLogger(EditorHost.class.getName());
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_STARTUP_TIMEOUT = Duration.ofSeconds(30);
+    public static final Duration DEFAULT_HEARTBEAT_TIMEOUT = Duration.ofSeconds(10);
+    // how long a killed child gets to exit on its own before it's killed forcibly
+    private static final long KILL_GRACE = 5000;
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "EditorHost watchdog");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static EditorHost defaultHost;
+
+    public static synchronized EditorHost getDefault() {
+        if (defaultHost == null) {
+            defaultHost = new EditorHost(DEFAULT_IDLE_TIMEOUT);
+        }
+        return defaultHost;
+    }
+
+    private final Duration idleTimeout;
+    private final SettingsCodec codec;
+    private final ChildLauncher launcher;
+    private final List<Consumer<SessionMetrics>> metricsListeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Session> sessions = new LinkedHashMap<>();
+    private volatile Duration startupTimeout = DEFAULT_STARTUP_TIMEOUT;
+    private volatile Duration heartbeatTimeout = DEFAULT_HEARTBEAT_TIMEOUT;
+    private volatile int relaunches;
+
+    private Child child;
+    private int nextSession;
+    private SessionMetrics lastMetrics;
+
+    private long lastFirstFrameNanos = -1;
+    private long lastColdOpenNanos = -1;
+    private long lastWarmOpenNanos = -1;
+
+    public EditorHost(Duration idleTimeout) {
+        this(idleTimeout, SettingsCodec.BINARY);
+    }
+
+    public EditorHost(Duration idleTimeout, SettingsCodec codec) {
+        this(idleTimeout, codec, ChildLauncher.builder().build());
+    }
+
+    public EditorHost(Duration idleTimeout, SettingsCodec codec, String mainClass) {
+        this(idleTimeout, codec, ChildLauncher.builder().mainClass(mainClass).build());
+    }
+
+    public EditorHost(Duration idleTimeout, SettingsCodec codec, ChildLauncher launcher) {
+        this.idleTimeout = idleTimeout;
+        this.codec = codec;
+        this.launcher = launcher;
+    }
+
+    public Duration getIdleTimeout() {
+        return this.idleTimeout;
+    }
+
+    public SettingsCodec getCodec() {
+        return this.codec;
+    }
+
+    public Duration getStartupTimeout() {
+        return this.startupTimeout;
+    }
+
+    /**
+     * @param startupTimeout how long a new child has to send its first frame, and an open config to be acknowledged
+     */
+    public void setStartupTimeout(Duration startupTimeout) {
+        this.startupTimeout = startupTimeout;
+    }
+
+    public Duration getHeartbeatTimeout() {
+        return this.heartbeatTimeout;
+    }
+
+    /**
+     * @param heartbeatTimeout how long a running child can go without sending anything, or without handling a command
+     *                         it was sent, before it's taken to be hung, several times
+     *                         {@link Protocol#HEARTBEAT_INTERVAL}
+     */
+    public void setHeartbeatTimeout(Duration heartbeatTimeout) {
+        this.heartbeatTimeout = heartbeatTimeout;
+    }
+
+    public int getRelaunches() {
+        return this.relaunches;
+    }
+
+    /**
+     * @param relaunches how many times a config is opened again after its child dies or hangs, 0 to fail it instead
+     */
+    public void setRelaunches(int relaunches) {
+        this.relaunches = relaunches;
+    }
+
+    public synchronized boolean isRunning() {
+        return this.child != null && this.child.process.isAlive();
+    }
+
+    @Override
+    public synchronized int getOpenCount() {
+        return this.sessions.size();
+    }
+
+    /**
+     * @return how long the last launched child took from spawning to showing its first window
+     */
+    public synchronized long getLastFirstFrameNanos() {
+        return this.lastFirstFrameNanos;
+    }
+
+    public synchronized long getLastColdOpenNanos() {
+        return this.lastColdOpenNanos;
+    }
+
+    public synchronized long getLastWarmOpenNanos() {
+        return this.lastWarmOpenNanos;
+    }
+
+    /**
+     * @return the metrics of the most recently opened session, which may have ended
+     */
+    public synchronized SessionMetrics getMetrics() {
+        return this.lastMetrics;
+    }
+
+    /**
+     * @param listener called with the metrics of every session once it has ended
+     */
+    public void addMetricsListener(Consumer<SessionMetrics> listener) {
+        this.metricsListeners.add(listener);
+    }
+
+    public void removeMetricsListener(Consumer<SessionMetrics> listener) {
+        this.metricsListeners.remove(listener);
+    }
+
+    public synchronized void start() throws IOException {
+        this.start(false);
+    }
+
+    private synchronized Child start(boolean fullClasspath) throws IOException {
+        if (this.isRunning()) {
+            if (this.child.fullClasspath || !fullClasspath) return this.child;
+            // the running child can't load the config's class, replace it with one that can
+            if (!this.hasSessions(this.child)) this.child.halt();
+        }
+        // a custom main class may live outside this library
+        fullClasspath |= !this.launcher.getMainClass().equals(SubProcess.class.getName());
+        String classpath = fullClasspath ? MainProcess.getClasspath() : MainProcess.getLibraryClasspath();
+        ConfigEvents.ChildSpawn event = new ConfigEvents.ChildSpawn();
+        event.begin();
+        long launched = System.nanoTime();
+        Process p = this.launcher.start(classpath, Long.toString(this.idleTimeout.toMillis()), this.codec.getName());
+        long spawnNanos = System.nanoTime() - launched;
+        event.end();
+        if (event.shouldCommit()) {
+            event.mainClass = this.launcher.getMainClass();
+            event.fullClasspath = fullClasspath;
+            event.commit();
+        }
+        FrameOutbox commands = new FrameOutbox(new FrameWriter(p.getOutputStream(), this.codec), "EditorHost writer");
+        Child child = new Child(p, commands, fullClasspath, launched, spawnNanos);
+        this.child = child;
+        long period = Math.max(1, Protocol.HEARTBEAT_INTERVAL / 2);
+        child.watchdog = WATCHDOG.scheduleWithFixedDelay(() -> this.watch(child), period, period, TimeUnit.MILLISECONDS);
+        Thread reader = new Thread(() -> this.read(child), "EditorHost reader");
+        reader.setDaemon(true);
+        reader.start();
+        return child;
+    }
+
+    /**
+     * kills the child if it has gone quiet
+     */
+    private void watch(Child child) {
+        long now = System.nanoTime();
+        long quiet = now - child.lastFrame;
+        Duration timeout = child.heard ? this.heartbeatTimeout : this.startupTimeout;
+        if (quiet >= timeout.toNanos()) {
+            LOGGER.log(System.Logger.Level.WARNING, "Editor host sent nothing for {0} ms, killing it", quiet / 1_000_000);
+            child.kill();
+            return;
+        }
+        // still beating, but a child whose reader is stuck never gets to the commands it was sent
+        long stalled = now - child.progress;
+        if (child.heard && child.handled < child.sent && stalled >= this.heartbeatTimeout.toNanos()) {
+            LOGGER.log(System.Logger.Level.WARNING, "Editor host has not handled {0} commands for {1} ms, killing it", child.sent - child.handled, stalled / 1_000_000);
+            child.kill();
+        }
+    }
+
+    private boolean hasSessions(Child child) {
+        for (Session session : this.sessions.values()) {
+            if (session.child == child) return true;
+        }
+        return false;
+    }
+
+    /**
+     * stops every child, failing the sessions still open in them
+     */
+    @Override
+    public void stop() {
+        List<Session> sessions;
+        synchronized (this) {
+            if (this.child != null) this.child.halt();
+            this.child = null;
+            sessions = new ArrayList<>(this.sessions.values());
+            this.sessions.clear();
+            for (Session session : sessions) {
+                if (session.child != null) session.child.halt();
+            }
+        }
+        for (Session session : sessions) {
+            this.finish(session, new IOException("Editor host stopped"));
+        }
+    }
+
+    @Override
+    public synchronized CompletableFuture<Result> open(DynamicSettings config) {
+        for (Session open : this.sessions.values()) {
+            if (open.config == config) return open.future;
+        }
+        Session session = new Session(this.nextSession++, config);
+        try {
+            session.schema = describe(config);
+            session.baseline = this.codec.encode(config);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        this.sessions.put(session.id, session);
+        this.lastMetrics = session.metrics;
+        try {
+            this.send(session);
+        } catch (IOException | RuntimeException e) {
+            this.sessions.remove(session.id);
+            return CompletableFuture.failedFuture(e);
+        }
+        return session.future;
+    }
+
+    private synchronized void send(Session session) throws IOException {
+        session.attempts++;
+        session.start = System.nanoTime();
+        Child child = this.start(session.schema == null);
+        session.child = child;
+        session.cold = !child.used;
+        child.used = true;
+        if (session.cold) session.metrics.spawned(child.spawnNanos);
+        session.startup = WATCHDOG.schedule(() -> {
+            if (session.opened || session.child != child) return;
+            LOGGER.log(System.Logger.Level.WARNING, "Editor host took too long to open {0}, killing it", session.config.getClass().getSimpleName());
+            child.kill();
+        }, this.startupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        this.write(session, child, out -> {
+            if (session.schema != null) {
+                out.begin(Protocol.OPEN_SCHEMA, session.id).write(session.schema);
+            } else {
+                out.begin(Protocol.OPEN, session.id).writeUTF(session.config.getClass().getName());
+            }
+            session.config.serializeOutline(out.settings());
+        });
+    }
+
+    /**
+     * queues a frame for the child, which {@code frame} begins and fills in on the writer thread. It's ended there too,
+     * once it has been counted and unless the child was halted while it waited.
+     */
+    private void write(Session session, Child child, FrameOutbox.Job frame) {
+        child.commands.send(out -> {
+            if (child.halted) return;
+            long start = System.nanoTime();
+            try {
+                frame.write(out);
+            } catch (IOException | RuntimeException e) {
+                this.unsent(session, child, e);
+                return;
+            }
+            // counted before the write, which blocks for as long as the child isn't reading
+            child.written();
+            out.end();
+            session.metrics.sent(out.length(), System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * handles a frame that couldn't be built. A session the child hasn't opened fails on its own, any other frame
+     * leaves the child waiting on an answer it won't get, so it's killed and its sessions handled like after a crash.
+     */
+    private void unsent(Session session, Child child, Exception e) {
+        if (session.opened) {
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to build a frame for the editor host, killing it", e);
+            child.kill();
+            return;
+        }
+        synchronized (this) {
+            // stopped while the frame was being built
+            if (this.sessions.remove(session.id) == null) return;
+        }
+        session.startup.cancel(false);
+        this.finish(session, e);
+    }
+
+    /**
+     * @return the config's schema, or null if it has settings that can't be described
+     */
+    private static byte[] describe(DynamicSettings config) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            config.describe(new DataOutputStream(out));
+        } catch (UnsupportedOperationException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Opening {0} by class name: {1}", config.getClass().getName(), e.getMessage());
+            return null;
+        }
+        return out.toByteArray();
+    }
+
+    private void read(Child child) {
+        try (InputStream in = child.process.getInputStream()) {
+            FrameReader reader = new FrameReader(in, this.codec);
+            int type;
+            while ((type = reader.next()) != -1) {
+                child.lastFrame = System.nanoTime();
+                // commands sent while it was starting up only count against it from here
+                if (!child.heard) child.progress = child.lastFrame;
+                child.heard = true;
+                if (child.halted) continue;
+                ConfigEvents.FrameReceived event = new ConfigEvents.FrameReceived();
+                event.begin();
+                this.handle(child, reader, (byte) type);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.type = Protocol.name((byte) type);
+                    event.bytes = reader.length();
+                    event.commit();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Editor host output closed", e);
+        } catch (RuntimeException e) {
+            // the child and this host no longer agree on its state, start over rather than guess
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to handle editor host output", e);
+        }
+        this.exited(child);
+    }
+
+    private void handle(Child child, FrameReader reader, byte type) throws IOException {
+        if (type == Protocol.HEARTBEAT) {
+            long handled = reader.data().readLong();
+            if (handled != child.handled) {
+                child.handled = handled;
+                child.progress = System.nanoTime();
+            }
+            return;
+        }
+        Session session;
+        synchronized (this) {
+            session = this.sessions.get(reader.session());
+        }
+        if (session == null || session.child != child) {
+            LOGGER.log(System.Logger.Level.WARNING, "Editor host message {0} for unknown session {1}", Protocol.name(type), reader.session());
+            if (type == Protocol.DELTA) {
+                reader.data().readLong();
+                reader.data().readLong();
+                this.discard(reader);
+            } else if (type == Protocol.FULL) {
+                reader.data().readLong();
+                this.discard(reader);
+            }
+            return;
+        }
+        session.metrics.received(reader.length());
+        DataInputStream data = reader.data();
+        switch (type) {
+            case Protocol.OPENED -> {
+                session.version = data.readLong();
+                this.opened(session);
+            }
+            case Protocol.DELTA -> {
+                long base = data.readLong();
+                long version = data.readLong();
+                if (base != session.version) {
+                    LOGGER.log(System.Logger.Level.DEBUG, "Delta based on {0} but at {1}, requesting full snapshot", base, session.version);
+                    this.discard(reader);
+                    this.resync(session);
+                    return;
+                }
+                this.apply(session, reader, version, false);
+            }
+            case Protocol.FULL -> this.apply(session, reader, data.readLong(), true);
+            case Protocol.EXPAND -> this.sendGroup(session, Protocol.readPath(data));
+            case Protocol.EXPANDED -> session.version = data.readLong();
+            case Protocol.SHOWN -> {
+                ConfigEvents.WindowShown event = new ConfigEvents.WindowShown();
+                event.config = session.metrics.getConfig();
+                event.sinceOpen = session.metrics.shown();
+                synchronized (this) {
+                    if (!child.shown) {
+                        child.shown = true;
+                        event.sinceLaunch = this.lastFirstFrameNanos = System.nanoTime() - child.launched;
+                    }
+                }
+                event.commit();
+                if (event.sinceLaunch != -1) {
+                    LOGGER.log(System.Logger.Level.INFO, "Editor host showed its first window {0} ms after launch", event.sinceLaunch / 1_000_000);
+                }
+            }
+            case Protocol.COMMIT -> {
+                long version = data.readLong();
+                if (version != session.version) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Commit of {0} but at {1}, keeping previous baseline", version, session.version);
+                    return;
+                }
+                session.baseline = this.codec.encode(session.config);
+                session.saved = true;
+            }
+            case Protocol.REVERT -> {
+                // previews since the last commit were applied live, roll them back
+                long start = System.nanoTime();
+                SettingsJournal.withSource("editor", () -> this.codec.decode(session.config, session.baseline));
+                session.metrics.deserialized(System.nanoTime() - start);
+                session.version = data.readLong();
+            }
+            case Protocol.CLOSED -> {
+                synchronized (this) {
+                    this.sessions.remove(session.id);
+                }
+                this.finish(session, null);
+            }
+            case Protocol.FAILED -> {
+                String message = data.readUTF();
+                LOGGER.log(System.Logger.Level.WARNING, "Editor host failed to handle {0}: {1}", session.config.getClass().getSimpleName(), message);
+                synchronized (this) {
+                    this.sessions.remove(session.id);
+                }
+                session.startup.cancel(false);
+                if (session.opened) {
+                    // like a crash, previews the editor applied were never committed
+                    try {
+                        SettingsJournal.withSource("editor", () -> this.codec.decode(session.config, session.baseline));
+                    } catch (IOException | RuntimeException e) {
+                        LOGGER.log(System.Logger.Level.WARNING, "Failed to roll back previews", e);
+                    }
+                }
+                this.finish(session, new IOException("Editor host failed: " + message));
+            }
+            default -> LOGGER.log(System.Logger.Level.WARNING, "Unknown editor host message: {0}", type);
+        }
+    }
+
+    private void apply(Session session, FrameReader reader, long version, boolean full) throws IOException {
+        long start = System.nanoTime();
+        try {
+            // applied as one update, so a change that breaks a constraint or fails halfway leaves the config as it was
+            SettingsJournal.withSource("editor", () -> session.config.update(() -> session.config.deserialize(reader.settings())));
+        } catch (ValidationException e) {
+            LOGGER.log(System.Logger.Level.INFO, "Rejected settings from the editor: {0}", e.getMessage());
+            this.reject(session, e.getViolations());
+            return;
+        } catch (IOException | RuntimeException e) {
+            if (full) {
+                LOGGER.log(System.Logger.Level.WARNING, "Failed to apply settings snapshot", e);
+                return;
+            }
+            // names sent in the unread rest of the frame are lost too, the snapshot sends them again
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to apply settings delta, requesting full snapshot", e);
+            this.resync(session);
+            return;
+        } finally {
+            session.metrics.deserialized(System.nanoTime() - start);
+        }
+        session.version = version;
+        LOGGER.log(System.Logger.Level.DEBUG, "Received {0} byte settings {1}", reader.length(), full ? "snapshot" : "delta");
+    }
+
+    /**
+     * reads past settings that won't be applied, so the codec still learns any names sent with them
+     */
+    private void discard(FrameReader reader) {
+        try {
+            reader.settings().skipValue();
+        } catch (IOException e) {
+            // the frame is read whole, so the next one is unaffected, and a resync sends the names again
+            LOGGER.log(System.Logger.Level.DEBUG, "Failed to skip discarded settings", e);
+        }
+    }
+
+    private void reject(Session session, List<String> violations) {
+        // read here, the reader thread moves it on
+        long version = session.version;
+        this.write(session, session.child, out -> {
+            DataOutputStream data = out.begin(Protocol.REJECTED, session.id);
+            data.writeLong(version);
+            data.writeInt(violations.size());
+            for (String violation : violations) {
+                data.writeUTF(violation);
+            }
+        });
+    }
+
+    private void resync(Session session) {
+        this.write(session, session.child, out -> out.begin(Protocol.RESYNC, session.id));
+    }
+
+    /**
+     * answers the child's request for a group's contents, as a standalone encoding so the child can apply it on its own
+     * thread. A length of -1 means there is no such group.
+     */
+    private void sendGroup(Session session, String[] path) {
+        this.write(session, session.child, out -> {
+            ByteArrayOutputStream bytes = null;
+            try {
+                DynamicSettings.GroupSetting<?> group = session.config.getGroup(path);
+                bytes = new ByteArrayOutputStream();
+                SettingsWriter writer = this.codec.writer(bytes);
+                group.get().serializeOutline(writer);
+                writer.flush();
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Editor host asked for an unknown group: {0}", e.getMessage());
+                bytes = null;
+            }
+            DataOutputStream data = out.begin(Protocol.GROUP, session.id);
+            Protocol.writePath(data, path);
+            if (bytes != null) {
+                data.writeInt(bytes.size());
+                bytes.writeTo(data);
+            } else {
+                data.writeInt(-1);
+            }
+        });
+    }
+
+    private void opened(Session session) {
+        long elapsed = System.nanoTime() - session.start;
+        session.metrics.opened();
+        session.opened = true;
+        session.startup.cancel(false);
+        synchronized (this) {
+            if (session.cold) {
+                this.lastColdOpenNanos = elapsed;
+            } else {
+                this.lastWarmOpenNanos = elapsed;
+            }
+        }
+        LOGGER.log(System.Logger.Level.INFO, "{0} open of {1} took {2} ms", session.cold ? "Cold" : "Warm", session.config.getClass().getSimpleName(), elapsed / 1_000_000);
+    }
+
+    private void exited(Child child) {
+        child.halt();
+        child.watchdog.cancel(false);
+        List<Session> failed = new ArrayList<>();
+        List<Session> retry = new ArrayList<>();
+        List<Session> relaunch = new ArrayList<>();
+        synchronized (this) {
+            child.halted = true;
+            if (this.child == child) this.child = null;
+            for (Session session : this.sessions.values()) {
+                if (session.child != child) continue;
+                session.startup.cancel(false);
+                if (!session.opened && session.attempts == 1) {
+                    retry.add(session);
+                } else if (session.relaunches < this.relaunches) {
+                    relaunch.add(session);
+                } else {
+                    failed.add(session);
+                }
+            }
+            for (Session session : failed) {
+                this.sessions.remove(session.id);
+            }
+        }
+        for (Session session : failed) {
+            this.finish(session, new IOException("Editor host exited while config was open"));
+        }
+        for (Session session : relaunch) {
+            session.relaunches++;
+            LOGGER.log(System.Logger.Level.WARNING, "Editor host exited while {0} was open, opening it again", session.config.getClass().getSimpleName());
+            if (session.opened) {
+                // previews the lost editor applied were never committed, the new one starts from the last commit
+                session.opened = false;
+                try {
+                    SettingsJournal.withSource("editor", () -> this.codec.decode(session.config, session.baseline));
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Failed to roll back previews", e);
+                }
+            }
+        }
+        // sessions whose open the host never got to, because it idled out first, are retried once, and sessions lost to
+        // a crash or hang are opened again up to the relaunch limit, both in a fresh child
+        retry.addAll(relaunch);
+        for (Session session : retry) {
+            try {
+                this.send(session);
+            } catch (IOException | RuntimeException e) {
+                // a config that can't be sent again only fails its own session
+                synchronized (this) {
+                    this.sessions.remove(session.id);
+                }
+                this.finish(session, e);
+            }
+        }
+    }
+
+    private void finish(Session session, Throwable error) {
+        session.metrics.closed(session.event);
+        LOGGER.log(System.Logger.Level.DEBUG, "Editor session ended: {0}", session.metrics);
+        for (Consumer<SessionMetrics> listener : this.metricsListeners) {
+            try {
+                listener.accept(session.metrics);
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Metrics listener failed", e);
+            }
+        }
+        if (error == null) {
+            session.future.complete(new Result(session.config, session.saved));
+        } else {
+            session.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * a launched child process, sessions stay in the child they were opened in
+     */
+    private static class Child {
+        private final Process process;
+        private final FrameOutbox commands;
+        private final boolean fullClasspath;
+        private final long launched;
+        private final long spawnNanos;
+        private ScheduledFuture<?> watchdog;
+        private volatile long lastFrame;
+        private volatile boolean heard;
+        // frames written to the child, and how many of them it last said it had handled
+        private volatile long sent;
+        private volatile long handled;
+        // when the child last caught up or handled more, or was first sent something to catch up on
+        private volatile long progress;
+        private boolean used;
+        private boolean shown;
+        private volatile boolean halted;
+        private boolean closed;
+
+        private Child(Process process, FrameOutbox commands, boolean fullClasspath, long launched, long spawnNanos) {
+            this.process = process;
+            this.commands = commands;
+            this.fullClasspath = fullClasspath;
+            this.launched = launched;
+            this.spawnNanos = spawnNanos;
+            this.lastFrame = launched;
+        }
+
+        /**
+         * counts a frame about to be written to the child, only called on its writer thread
+         */
+        private void written() {
+            if (this.sent == this.handled) this.progress = System.nanoTime();
+            this.sent++;
+        }
+
+        private synchronized void halt() {
+            this.kill();
+            if (this.closed) return;
+            this.closed = true;
+            // queued frames are skipped now, and a write still blocked on the pipe fails once the kill lands
+            this.commands.send(out -> out.close());
+            this.commands.close();
+        }
+
+        /**
+         * asks the child to exit, and makes it if it hasn't after {@link #KILL_GRACE} ms. Its frames are ignored from
+         * here on.
+         */
+        private void kill() {
+            this.halted = true;
+            if (!this.process.isAlive()) return;
+            this.process.destroy();
+            WATCHDOG.schedule(() -> {
+                if (this.process.isAlive()) this.process.destroyForcibly();
+            }, KILL_GRACE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static class Session {
+        private final int id;
+        private final DynamicSettings config;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final SessionMetrics metrics;
+        private final ConfigEvents.Session event = new ConfigEvents.Session();
+        private volatile Child child;
+        private byte[] schema;
+        private byte[] baseline;
+        private ScheduledFuture<?> startup;
+        private int relaunches;
+        private volatile boolean opened;
+        private boolean saved;
+        private long version;
+        private boolean cold;
+        private int attempts;
+        private long start;
+
+        private Session(int id, DynamicSettings config) {
+            this.id = id;
+            this.config = config;
+            this.metrics = new SessionMetrics(config.getClass().getName());
+            this.event.begin();
+        }
+    }
+
+}
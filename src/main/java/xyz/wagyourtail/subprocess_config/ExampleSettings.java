@@ -1,11 +1,19 @@
 package xyz.wagyourtail.subprocess_config;
 
+import xyz.wagyourtail.subprocess_config.settings.Constraint;
 import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.GenerateCodec;
 
+@GenerateCodec
 public class ExampleSettings extends DynamicSettings {
-    public final Setting<Boolean> example1 = register("example1", false);
-    public final Setting<String> example2 = register("example2", "default");
-    public final Setting<Integer> example3 = register("example3", 0);
-    public final Setting<Double> example4 = register("example4", 0.0);
+    public final BooleanSetting example1 = register("example1", false);
+    public final StringSetting example2 = register("example2", "default");
+    public final IntSetting example3 = register("example3", 0);
+    public final DoubleSetting example4 = register("example4", 0.0);
+
+    {
+        addConstraint(Constraint.range(this.example3, 0, 100));
+        addConstraint(Constraint.matches(this.example2, "\\S+").when(this.example1));
+    }
 
 }
@@ -0,0 +1,107 @@
+package xyz.wagyourtail.subprocess_config;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Builds and writes frames on a background thread, so the thread sending them never waits on serialization or on a
+ * full pipe. Jobs run in the order they were sent.
+ * <p>
+ * A job sent with a key is dropped if a job with the same key is still waiting, since jobs read the state they send
+ * when they run and the waiting one will pick up the newer state too. That keeps at most one snapshot of each config
+ * queued however far behind the other end falls. Past {@link #CAPACITY} waiting jobs the other end has stopped
+ * reading, and further keyed jobs are dropped rather than queued without bound. Jobs without a key are control frames
+ * the other end relies on, such as a commit or a close, and are always queued.
+ */
+final class FrameOutbox {
+    private static final System.Logger LOGGER = System.getLogger(FrameOutbox.class.getName());
+    static final int CAPACITY = 1024;
+
+    private final FrameWriter out;
+    private final Thread thread;
+    private final ArrayDeque<Entry> queue = new ArrayDeque<>();
+    private final Set<Object> waiting = new HashSet<>();
+    private boolean closed;
+
+    FrameOutbox(FrameWriter out, String name) {
+        this.out = out;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void send(Job job) {
+        this.send(null, job);
+    }
+
+    synchronized void send(Object key, Job job) {
+        if (this.closed) {
+            LOGGER.log(System.Logger.Level.WARNING, "Dropping frame sent after the outbox closed");
+            return;
+        }
+        if (key != null) {
+            if (this.waiting.contains(key)) return;
+            // a later job with this key, or a commit, sends the state this one would have
+            if (this.queue.size() >= CAPACITY) {
+                LOGGER.log(System.Logger.Level.WARNING, "Dropping frame, {0} are already waiting to be written", this.queue.size());
+                return;
+            }
+            this.waiting.add(key);
+        }
+        this.queue.add(new Entry(key, job));
+        this.notifyAll();
+    }
+
+    /**
+     * stops taking jobs, the writer thread exits once it has run the ones already sent
+     */
+    synchronized void close() {
+        this.closed = true;
+        this.notifyAll();
+    }
+
+    /**
+     * writes everything already sent and stops the writer thread, waiting at most {@code timeoutMillis}
+     *
+     * @return whether everything was written in time
+     */
+    boolean close(long timeoutMillis) throws InterruptedException {
+        this.close();
+        this.thread.join(timeoutMillis);
+        return !this.thread.isAlive();
+    }
+
+    private void run() {
+        while (true) {
+            Entry entry;
+            synchronized (this) {
+                while (this.queue.isEmpty() && !this.closed) {
+                    try {
+                        this.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                entry = this.queue.poll();
+                if (entry == null) return;
+                // a job sent while this one runs may need newer state than it reads
+                if (entry.key != null) this.waiting.remove(entry.key);
+            }
+            try {
+                entry.job.write(this.out);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Failed to write frame", e);
+            }
+        }
+    }
+
+    interface Job {
+        void write(FrameWriter out) throws IOException;
+    }
+
+    private record Entry(Object key, Job job) {
+    }
+
+}
@@ -0,0 +1,95 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads frames written by a {@link FrameWriter}. Each frame is read whole into a reused buffer and decoded from there,
+ * the buffer only grows as far as the largest frame allowed and shrinks back after an unusually large one.
+ */
+public class FrameReader {
+    private static final int INITIAL_BUFFER = 8192;
+    private static final int RETAINED_BUFFER = 1 << 20;
+
+    private final DataInputStream in;
+    private final FrameInputStream frame = new FrameInputStream();
+    private final DataInputStream data = new DataInputStream(this.frame);
+    private final SettingsReader settings;
+    private final int maxFrame;
+    private byte[] buffer = new byte[INITIAL_BUFFER];
+    private int length;
+    private int session;
+
+    public FrameReader(InputStream in, SettingsCodec codec) {
+        this(in, codec, Protocol.MAX_FRAME);
+    }
+
+    public FrameReader(InputStream in, SettingsCodec codec, int maxFrame) {
+        this.in = new DataInputStream(in);
+        this.settings = codec.reader(this.data);
+        this.maxFrame = maxFrame;
+    }
+
+    /**
+     * @return the type of the next frame, or -1 once the stream has ended
+     */
+    public int next() throws IOException {
+        try {
+            this.length = this.in.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+        if (this.length < 5 || this.length > this.maxFrame) throw new IOException("Invalid frame length: " + this.length);
+        if (this.length > this.buffer.length) {
+            this.buffer = new byte[Math.min(Math.max(this.length, this.buffer.length * 2), this.maxFrame)];
+        } else if (this.buffer.length > RETAINED_BUFFER && this.length <= INITIAL_BUFFER) {
+            this.buffer = new byte[INITIAL_BUFFER];
+        }
+        this.in.readFully(this.buffer, 0, this.length);
+        this.frame.reset(this.buffer, this.length);
+        // the last frame may have been left partly read
+        this.settings.abandon();
+        byte type = this.data.readByte();
+        this.session = this.data.readInt();
+        return type;
+    }
+
+    /**
+     * @return the session the current frame belongs to
+     */
+    public int session() {
+        return this.session;
+    }
+
+    public int length() {
+        return this.length;
+    }
+
+    public DataInputStream data() {
+        return this.data;
+    }
+
+    public SettingsReader settings() {
+        return this.settings;
+    }
+
+    private static class FrameInputStream extends ByteArrayInputStream {
+        private FrameInputStream() {
+            super(new byte[0]);
+        }
+
+        private void reset(byte[] buf, int length) {
+            this.buf = buf;
+            this.pos = 0;
+            this.count = length;
+            this.mark = 0;
+        }
+    }
+
+}
@@ -0,0 +1,114 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes length prefixed frames of {@code [int length][byte type][int session][body]}. A frame is built with
+ * {@link #begin(byte, int)} and sent with {@link #end()}, callers must hold the writer's lock for the whole frame.
+ * Every frame belongs to a session, so one channel can carry any number of open configs.
+ * <p>
+ * Writes block once the other end stops reading and the pipe fills up, which is what keeps a slow reader from being
+ * flooded.
+ * <p>
+ * Names the {@link #settings() settings writer} sends are only known to the reader once their frame arrives, so a
+ * frame that is never sent, because {@link #end()} failed or it was abandoned for a new {@link #begin}, resets the
+ * settings writer and the next frame sends them again.
+ */
+public class FrameWriter {
+    private static final int INITIAL_BUFFER = 8192;
+    private static final int RETAINED_BUFFER = 1 << 20;
+
+    private final DataOutputStream out;
+    private final FrameBuffer buffer = new FrameBuffer();
+    private final DataOutputStream data = new DataOutputStream(this.buffer);
+    private final SettingsWriter settings;
+    private ConfigEvents.FrameSent event;
+    private byte type;
+    private int length;
+    private boolean open;
+
+    public FrameWriter(OutputStream out, SettingsCodec codec) {
+        this.out = new DataOutputStream(out);
+        this.settings = codec.writer(this.data);
+    }
+
+    public DataOutputStream begin(byte type, int session) throws IOException {
+        if (this.open) this.settings.reset();
+        this.open = true;
+        this.buffer.reset();
+        this.event = new ConfigEvents.FrameSent();
+        this.event.begin();
+        this.type = type;
+        this.data.writeByte(type);
+        this.data.writeInt(session);
+        return this.data;
+    }
+
+    public SettingsWriter settings() {
+        return this.settings;
+    }
+
+    public void end() throws IOException {
+        int size;
+        try {
+            this.settings.flush();
+            size = this.buffer.size();
+            if (size > Protocol.MAX_FRAME) {
+                throw new IOException("Frame of " + size + " bytes is larger than " + Protocol.MAX_FRAME);
+            }
+            this.out.writeInt(size);
+            this.buffer.writeTo(this.out);
+            this.out.flush();
+        } catch (IOException | RuntimeException e) {
+            this.settings.reset();
+            throw e;
+        } finally {
+            this.open = false;
+            this.buffer.shrink();
+        }
+        this.length = size;
+        this.event.end();
+        if (this.event.shouldCommit()) {
+            this.event.type = Protocol.name(this.type);
+            this.event.bytes = size;
+            this.event.commit();
+        }
+    }
+
+    /**
+     * @return the size of the last frame sent
+     */
+    public int length() {
+        return this.length;
+    }
+
+    public void send(byte type, int session) throws IOException {
+        this.begin(type, session);
+        this.end();
+    }
+
+    public void close() throws IOException {
+        this.out.close();
+    }
+
+    private static class FrameBuffer extends ByteArrayOutputStream {
+        private FrameBuffer() {
+            super(INITIAL_BUFFER);
+        }
+
+        /**
+         * empties the buffer and drops the array grown for an unusually large frame
+         */
+        private void shrink() {
+            this.reset();
+            if (this.buf.length > RETAINED_BUFFER) this.buf = new byte[INITIAL_BUFFER];
+        }
+    }
+
+}
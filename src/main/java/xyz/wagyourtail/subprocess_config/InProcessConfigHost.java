@@ -0,0 +1,193 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettingsPanel;
+import xyz.wagyourtail.subprocess_config.settings.ValidationException;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.store.SettingsJournal;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Edits configs in a {@link DynamicSettingsPanel#createSettingsFrame settings frame} of this process, for apps that
+ * already run Swing. There's no JVM to launch, opening is just building the frame, but the editor shares the app's
+ * event dispatch thread and look and feel.
+ * <p>
+ * The editor works on the app's own settings, so edits are held in the frame and only written, through
+ * {@link DynamicSettings#update}, when they're saved. Edits that break a constraint are rolled back and never seen by
+ * the app.
+ */
+public class InProcessConfigHost implements ConfigHost {
+    private final Component parent;
+    private final Map<DynamicSettings, Editor> editors = new IdentityHashMap<>();
+
+    public InProcessConfigHost() {
+        this(null);
+    }
+
+    /**
+     * @param parent the component editors are centered on, or null for the screen
+     */
+    public InProcessConfigHost(Component parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public CompletableFuture<Result> open(DynamicSettings config) {
+        Editor editor;
+        synchronized (this) {
+            editor = this.editors.get(config);
+            if (editor != null) {
+                SwingUtilities.invokeLater(editor::toFront);
+                return editor.future;
+            }
+            editor = new Editor(config);
+            this.editors.put(config, editor);
+        }
+        Editor opened = editor;
+        opened.future.whenComplete((result, error) -> {
+            synchronized (this) {
+                this.editors.remove(config, opened);
+            }
+        });
+        try {
+            // taken before the frame is built, so the event dispatch thread doesn't encode the whole config
+            opened.baseline = SettingsCodec.BINARY.encode(config);
+        } catch (IOException | RuntimeException e) {
+            opened.future.completeExceptionally(e);
+            return opened.future;
+        }
+        if (SwingUtilities.isEventDispatchThread()) {
+            opened.show();
+        } else {
+            SwingUtilities.invokeLater(opened::show);
+        }
+        return opened.future;
+    }
+
+    @Override
+    public synchronized int getOpenCount() {
+        return this.editors.size();
+    }
+
+    @Override
+    public void stop() {
+        List<Editor> editors;
+        synchronized (this) {
+            editors = new ArrayList<>(this.editors.values());
+        }
+        for (Editor editor : editors) {
+            SwingUtilities.invokeLater(() -> editor.close(new IllegalStateException("Config host stopped")));
+        }
+    }
+
+    /**
+     * only touched on the event dispatch thread, apart from the baseline taken before it's shown
+     */
+    private class Editor {
+        private final DynamicSettings config;
+        private final CompletableFuture<Result> future = new CompletableFuture<>();
+        private final JLabel status = new JLabel();
+        private byte[] baseline;
+        private JFrame frame;
+        private DynamicSettingsPanel panel;
+        private boolean saved;
+
+        private Editor(DynamicSettings config) {
+            this.config = config;
+        }
+
+        private void show() {
+            // stopped before it got to be shown
+            if (this.future.isDone()) return;
+            try {
+                this.frame = DynamicSettingsPanel.createSettingsFrame(InProcessConfigHost.this.parent, this.config.getClass().getSimpleName(), this.config, (frame, panel) -> {
+                    this.panel = panel;
+                    this.status.setForeground(Color.RED);
+                    JPanel buttons = new JPanel();
+                    buttons.add(this.status);
+                    JButton save = new JButton("Save");
+                    save.addActionListener(e -> this.commit());
+                    buttons.add(save);
+                    JButton revert = new JButton("Revert");
+                    revert.addActionListener(e -> this.revert());
+                    buttons.add(revert);
+                    return buttons;
+                });
+            } catch (RuntimeException e) {
+                this.future.completeExceptionally(e);
+                return;
+            }
+            this.frame.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowClosing(java.awt.event.WindowEvent windowEvent) {
+                    // invalid edits are never saved
+                    if (!Editor.this.commit()) Editor.this.revert();
+                }
+
+                @Override
+                public void windowClosed(java.awt.event.WindowEvent windowEvent) {
+                    Editor.this.future.complete(new Result(Editor.this.config, Editor.this.saved));
+                }
+            });
+            this.frame.setVisible(true);
+        }
+
+        private void toFront() {
+            if (this.frame != null) this.frame.toFront();
+        }
+
+        /**
+         * @return false if the edits are invalid and weren't saved
+         */
+        private boolean commit() {
+            List<String> violations;
+            try {
+                this.config.update(this.panel::save);
+                violations = List.of();
+            } catch (ValidationException e) {
+                violations = e.getViolations();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            this.status.setText(String.join("; ", violations));
+            if (!violations.isEmpty()) {
+                UIManager.getLookAndFeel().provideErrorFeedback(this.panel);
+                return false;
+            }
+            try {
+                this.baseline = SettingsCodec.BINARY.encode(this.config);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            this.saved = true;
+            return true;
+        }
+
+        private void revert() {
+            try {
+                SettingsJournal.withSource("editor", () -> SettingsCodec.BINARY.decode(this.config, this.baseline));
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            this.panel.reload();
+            this.status.setText(String.join("; ", this.config.getViolations()));
+        }
+
+        private void close(Throwable error) {
+            if (this.frame != null) {
+                this.revert();
+                this.frame.dispose();
+            }
+            this.future.completeExceptionally(error);
+        }
+    }
+
+}
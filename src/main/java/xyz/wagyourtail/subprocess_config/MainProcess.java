@@ -1,21 +1,19 @@
 package xyz.wagyourtail.subprocess_config;
 
-import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
 import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
-import xyz.wagyourtail.subprocess_config.settings.DynamicSettingsPanel;
+import xyz.wagyourtail.subprocess_config.settings.store.SettingsStore;
 
-import javax.swing.*;
-import java.io.BufferedOutputStream;
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.IOException;
 import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.io.StringReader;
-import java.util.List;
+import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 public class MainProcess {
 
@@ -27,32 +25,45 @@ public class MainProcess {
         return System.getProperty("java.class.path");
     }
 
-    public static CompletableFuture<?> openConfig(DynamicSettings config) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (JsonWriter w = new JsonWriter(new OutputStreamWriter(baos))) {
-            config.serialize(w);
+    /**
+     * just this library and gson, enough for a {@link SubProcess} that only edits
+     * {@link xyz.wagyourtail.subprocess_config.settings.SchemaSettings}. Falls back to the full classpath if either
+     * location can't be found.
+     */
+    public static String getLibraryClasspath() {
+        Set<String> entries = new LinkedHashSet<>();
+        for (Class<?> c : new Class<?>[] { SubProcess.class, JsonWriter.class }) {
+            CodeSource source = c.getProtectionDomain().getCodeSource();
+            if (source == null || source.getLocation() == null) return getClasspath();
+            try {
+                entries.add(Path.of(source.getLocation().toURI()).toString());
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return getClasspath();
+            }
         }
-        ProcessBuilder pb = new ProcessBuilder(getJava(), "-cp", getClasspath(), "xyz.wagyourtail.subprocess_config.SubProcess", config.getClass().getCanonicalName(), baos.toString());
-        Process p = pb.start();
+        return String.join(File.pathSeparator, entries);
+    }
 
-        return CompletableFuture.runAsync(() -> {
-            try (BufferedReader r = p.inputReader()) {
-                String line;
-                while((line = r.readLine()) != null) {
-                    try (JsonReader reader = new JsonReader(new StringReader(line))) {
-                        config.deserialize(reader);
-                    }
-                    System.out.println("Recieved settings: " + line);
-                }
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-        });
-//        return CompletableFuture.completedFuture(null);
+    /**
+     * opens the config in the {@link ConfigHosts#getDefault() host picked for this environment}
+     */
+    public static CompletableFuture<ConfigHost.Result> openConfig(DynamicSettings config) {
+        return ConfigHosts.getDefault().open(config);
     }
 
     public static void main(String[] args) throws Exception {
         ExampleSettings settings = new ExampleSettings();
+        SettingsStore store = new SettingsStore(settings, Path.of("example_settings.json"));
+        store.load();
+        store.autosave(Runnable::run);
+        store.watch();
+        settings.addListener(Runnable::run, e -> {
+            StringBuilder sb = new StringBuilder("Recieved settings:");
+            for (DynamicSettings.Setting<?> setting : e.getChanged()) {
+                sb.append(' ').append(setting.getName()).append('=').append(setting.get());
+            }
+            System.out.println(sb);
+        });
 
         while (true) {
             var future = openConfig(settings);
@@ -66,7 +77,11 @@ public class MainProcess {
 
             System.out.println("Waiting for settings...");
 
-            future.get();
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                System.out.println("editor failed: " + e.getCause());
+            }
 
             System.out.println("program closed, current settings: ");
             ByteArrayOutputStream baos2 = new ByteArrayOutputStream();
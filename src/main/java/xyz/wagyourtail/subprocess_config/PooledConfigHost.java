@@ -0,0 +1,108 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EditorHost}s whose children are launched up front and kept running, replacing any that die, so every open
+ * is warm. Each open goes to the running child with the fewest configs open, so a child that hangs or crashes only
+ * takes its own configs with it.
+ * <p>
+ * The children never idle out, the pool holds a JVM per child until {@link #stop()}.
+ */
+public class PooledConfigHost implements ConfigHost {
+    private static final System.Logger LOGGER = System.getLogger(PooledConfigHost.class.getName());
+    // how often children that died are replaced, in ms
+    private static final long REFILL_INTERVAL = 1000;
+
+    private final List<EditorHost> hosts;
+    private final Map<DynamicSettings, CompletableFuture<Result>> open = new IdentityHashMap<>();
+    private final ScheduledExecutorService refill = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "PooledConfigHost refill");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public PooledConfigHost(int size) {
+        this(size, SettingsCodec.BINARY, ChildLauncher.builder().build());
+    }
+
+    public PooledConfigHost(int size, SettingsCodec codec, ChildLauncher launcher) {
+        if (size < 1) throw new IllegalArgumentException("Pool needs at least one child, got " + size);
+        List<EditorHost> hosts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            hosts.add(new EditorHost(Duration.ZERO, codec, launcher));
+        }
+        this.hosts = List.copyOf(hosts);
+        this.refill.scheduleWithFixedDelay(this::refill, 0, REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the hosts of the pool's children, for setting their timeouts and reading their metrics
+     */
+    public List<EditorHost> getHosts() {
+        return this.hosts;
+    }
+
+    private void refill() {
+        for (EditorHost host : this.hosts) {
+            if (host.isRunning()) continue;
+            try {
+                host.start();
+            } catch (IOException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Failed to launch pooled editor host", e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized CompletableFuture<Result> open(DynamicSettings config) {
+        // a config that's already open stays in the child it's open in
+        CompletableFuture<Result> future = this.open.get(config);
+        if (future != null) return future;
+        EditorHost best = null;
+        for (EditorHost host : this.hosts) {
+            // one that's still launching opens cold, so prefer any that's running
+            if (best == null || host.isRunning() && (!best.isRunning() || host.getOpenCount() < best.getOpenCount())) {
+                best = host;
+            }
+        }
+        CompletableFuture<Result> opened = best.open(config);
+        this.open.put(config, opened);
+        opened.whenComplete((result, error) -> {
+            synchronized (this) {
+                this.open.remove(config, opened);
+            }
+        });
+        return opened;
+    }
+
+    @Override
+    public int getOpenCount() {
+        int count = 0;
+        for (EditorHost host : this.hosts) {
+            count += host.getOpenCount();
+        }
+        return count;
+    }
+
+    @Override
+    public void stop() {
+        this.refill.shutdownNow();
+        for (EditorHost host : this.hosts) {
+            host.stop();
+        }
+    }
+
+}
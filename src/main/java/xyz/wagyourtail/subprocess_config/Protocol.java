@@ -0,0 +1,95 @@
+package xyz.wagyourtail.subprocess_config;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Frame types exchanged between {@link EditorHost} and {@link SubProcess}.
+ */
+public final class Protocol {
+    /**
+     * frames larger than this are refused by both ends, so a corrupt length can't make the reader allocate gigabytes
+     */
+    public static final int MAX_FRAME = 64 << 20;
+    /**
+     * how often the child sends {@link #HEARTBEAT}, in ms. A child that goes quiet for much longer is taken to be hung.
+     */
+    public static final long HEARTBEAT_INTERVAL = 1000;
+
+    // parent -> child
+    public static final byte OPEN = 1;
+    public static final byte RESYNC = 2;
+    public static final byte OPEN_SCHEMA = 3;
+    public static final byte GROUP = 4;
+    /**
+     * a delta or snapshot broke a constraint and wasn't applied, followed by the version the parent is still at and
+     * the violations
+     */
+    public static final byte REJECTED = 5;
+
+    // child -> parent
+    public static final byte OPENED = 16;
+    public static final byte DELTA = 17;
+    public static final byte FULL = 18;
+    public static final byte CLOSED = 19;
+    public static final byte COMMIT = 20;
+    public static final byte REVERT = 21;
+    public static final byte SHOWN = 22;
+    public static final byte EXPAND = 23;
+    public static final byte EXPANDED = 24;
+    /**
+     * sent for no session every {@link #HEARTBEAT_INTERVAL} ms while the child is responsive, followed by the number of
+     * frames it has read and handled so far. A child that beats but stops reading commands is hung as well.
+     */
+    public static final byte HEARTBEAT = 25;
+    /**
+     * the child couldn't handle a command for the session, followed by why. The session is over in the child, the
+     * others in it carry on.
+     */
+    public static final byte FAILED = 26;
+
+    private Protocol() {
+    }
+
+    public static String name(byte type) {
+        return switch (type) {
+            case OPEN -> "OPEN";
+            case RESYNC -> "RESYNC";
+            case OPEN_SCHEMA -> "OPEN_SCHEMA";
+            case GROUP -> "GROUP";
+            case REJECTED -> "REJECTED";
+            case OPENED -> "OPENED";
+            case DELTA -> "DELTA";
+            case FULL -> "FULL";
+            case CLOSED -> "CLOSED";
+            case COMMIT -> "COMMIT";
+            case REVERT -> "REVERT";
+            case SHOWN -> "SHOWN";
+            case EXPAND -> "EXPAND";
+            case EXPANDED -> "EXPANDED";
+            case HEARTBEAT -> "HEARTBEAT";
+            case FAILED -> "FAILED";
+            default -> Byte.toString(type);
+        };
+    }
+
+    /**
+     * writes the path of a {@link xyz.wagyourtail.subprocess_config.settings.DynamicSettings.GroupSetting group}
+     */
+    public static void writePath(DataOutput out, String[] path) throws IOException {
+        out.writeInt(path.length);
+        for (String name : path) {
+            out.writeUTF(name);
+        }
+    }
+
+    public static String[] readPath(DataInput in) throws IOException {
+        String[] path = new String[in.readInt()];
+        for (int i = 0; i < path.length; i++) {
+            path[i] = in.readUTF();
+        }
+        return path;
+    }
+
+}
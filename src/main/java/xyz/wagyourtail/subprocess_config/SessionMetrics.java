@@ -0,0 +1,160 @@
+package xyz.wagyourtail.subprocess_config;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timings and traffic for one {@link EditorHost#open(xyz.wagyourtail.subprocess_config.settings.DynamicSettings)
+ * editor session}, counted from the parent's side. Durations are in nanoseconds, and are -1 until they happen.
+ * <p>
+ * Sent frames are counted with the time spent serializing and writing them, received frames with the time spent
+ * applying them to the config.
+ */
+public final class SessionMetrics {
+    private final String config;
+    private final long start = System.nanoTime();
+    private boolean cold;
+    private long spawnNanos = -1;
+    private long openNanos = -1;
+    private long windowNanos = -1;
+    private long durationNanos = -1;
+    private long messagesSent;
+    private long bytesSent;
+    private long serializeNanos;
+    private long messagesReceived;
+    private long bytesReceived;
+    private long deserializeNanos;
+
+    SessionMetrics(String config) {
+        this.config = config;
+    }
+
+    public String getConfig() {
+        return this.config;
+    }
+
+    /**
+     * @return whether a child had to be launched for this session
+     */
+    public synchronized boolean isCold() {
+        return this.cold;
+    }
+
+    /**
+     * @return how long starting the child process took, or -1 if one was already running
+     */
+    public synchronized long getSpawnNanos() {
+        return this.spawnNanos;
+    }
+
+    /**
+     * @return time from open until the child had built the config's window
+     */
+    public synchronized long getOpenNanos() {
+        return this.openNanos;
+    }
+
+    /**
+     * @return time from open until the window was visible
+     */
+    public synchronized long getWindowNanos() {
+        return this.windowNanos;
+    }
+
+    /**
+     * @return how long the session lasted, or -1 while it is still open
+     */
+    public synchronized long getDurationNanos() {
+        return this.durationNanos;
+    }
+
+    public synchronized boolean isClosed() {
+        return this.durationNanos != -1;
+    }
+
+    public synchronized long getMessagesSent() {
+        return this.messagesSent;
+    }
+
+    public synchronized long getBytesSent() {
+        return this.bytesSent;
+    }
+
+    public synchronized long getSerializeNanos() {
+        return this.serializeNanos;
+    }
+
+    public synchronized long getMessagesReceived() {
+        return this.messagesReceived;
+    }
+
+    public synchronized long getBytesReceived() {
+        return this.bytesReceived;
+    }
+
+    public synchronized long getDeserializeNanos() {
+        return this.deserializeNanos;
+    }
+
+    synchronized void spawned(long nanos) {
+        this.cold = true;
+        this.spawnNanos = nanos;
+    }
+
+    synchronized long opened() {
+        return this.openNanos = System.nanoTime() - this.start;
+    }
+
+    synchronized long shown() {
+        if (this.windowNanos == -1) this.windowNanos = System.nanoTime() - this.start;
+        return this.windowNanos;
+    }
+
+    synchronized void sent(int bytes, long nanos) {
+        this.messagesSent++;
+        this.bytesSent += bytes;
+        this.serializeNanos += nanos;
+    }
+
+    synchronized void received(int bytes) {
+        this.messagesReceived++;
+        this.bytesReceived += bytes;
+    }
+
+    synchronized void deserialized(long nanos) {
+        this.deserializeNanos += nanos;
+    }
+
+    synchronized void closed(ConfigEvents.Session event) {
+        if (this.durationNanos != -1) return;
+        this.durationNanos = System.nanoTime() - this.start;
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.config = this.config;
+        event.cold = this.cold;
+        event.spawnTime = this.spawnNanos;
+        event.openTime = this.openNanos;
+        event.windowTime = this.windowNanos;
+        event.messagesSent = this.messagesSent;
+        event.bytesSent = this.bytesSent;
+        event.serializeTime = this.serializeNanos;
+        event.messagesReceived = this.messagesReceived;
+        event.bytesReceived = this.bytesReceived;
+        event.deserializeTime = this.deserializeNanos;
+        event.commit();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return this.config + (this.cold ? " (cold)" : " (warm)")
+            + ": spawn " + millis(this.spawnNanos) + " ms"
+            + ", open " + millis(this.openNanos) + " ms"
+            + ", window " + millis(this.windowNanos) + " ms"
+            + ", sent " + this.messagesSent + " messages / " + this.bytesSent + " bytes in " + millis(this.serializeNanos) + " ms"
+            + ", received " + this.messagesReceived + " messages / " + this.bytesReceived + " bytes in " + millis(this.deserializeNanos) + " ms";
+    }
+
+    private static long millis(long nanos) {
+        return nanos == -1 ? -1 : TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+}
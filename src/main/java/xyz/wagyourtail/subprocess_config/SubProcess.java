@@ -1,59 +1,520 @@
 package xyz.wagyourtail.subprocess_config;
 
-import com.google.gson.stream.JsonReader;
-import com.google.gson.stream.JsonWriter;
 import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
 import xyz.wagyourtail.subprocess_config.settings.DynamicSettingsPanel;
+import xyz.wagyourtail.subprocess_config.settings.SchemaSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.ClassCodecs;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsClassCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
 
 import javax.swing.*;
-import java.io.ByteArrayOutputStream;
+import java.awt.*;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * The editor child. Frames are built and written by a {@link FrameOutbox}, so the event dispatch thread only queues
+ * them and never serializes a whole config or waits on the pipe.
+ */
 public class SubProcess {
+    // how long exiting waits for queued frames to be written
+    private static final long CLOSE_TIMEOUT = 5000;
+    private static final ScheduledExecutorService TIMERS = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SubProcess timers");
+        t.setDaemon(true);
+        return t;
+    });
 
-    public static void send(DynamicSettings settings, DynamicSettingsPanel panel) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (JsonWriter w = new JsonWriter(new OutputStreamWriter(baos))) {
-            panel.save();
-            settings.serialize(w);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+    private static long idleTimeout;
+    private static int openWindows;
+    private static ScheduledFuture<?> idleExit;
+    // only touched on the event dispatch thread
+    private static final Map<Integer, Editor> editors = new HashMap<>();
+    private static final Object HEARTBEAT = new Object();
+    private static FrameOutbox outbox;
+    // frames read and handled, echoed in heartbeats so the parent notices a reader that stopped
+    private static volatile long handled;
+    private static SettingsCodec codec;
+
+    private static synchronized void windowOpened() {
+        openWindows++;
+        if (idleExit != null) {
+            idleExit.cancel(false);
+            idleExit = null;
         }
-        System.out.println(baos.toString());
     }
 
-    public static void main(String[] args) throws Exception {
-        DynamicSettings settings = (DynamicSettings) Class.forName(args[0]).newInstance();
-        try (JsonReader r = new JsonReader(new StringReader(args[1]))) {
-            settings.deserialize(r);
+    private static synchronized void windowClosed(int session, boolean notify) {
+        openWindows--;
+        if (notify) outbox.send(out -> out.send(Protocol.CLOSED, session));
+        scheduleIdleExit();
+    }
+
+    private static synchronized void scheduleIdleExit() {
+        if (openWindows > 0 || idleTimeout <= 0) return;
+        idleExit = TIMERS.schedule(() -> {
+            synchronized (SubProcess.class) {
+                if (openWindows == 0) System.exit(0);
+            }
+        }, idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * beats by way of the event dispatch thread, so the parent notices a hung window as well as a hung writer
+     */
+    private static void heartbeat() {
+        SwingUtilities.invokeLater(() -> outbox.send(HEARTBEAT, out -> {
+            out.begin(Protocol.HEARTBEAT, -1).writeLong(handled);
+            out.end();
+        }));
+    }
+
+    public static void open(int session, DynamicSettings settings) {
+        windowOpened();
+        // taken here rather than on the event dispatch thread, it's the size of the whole config
+        byte[] baseline = Editor.capture(settings);
+
+        SwingUtilities.invokeLater(() -> {
+            JFrame window = new JFrame();
+            DynamicSettingsPanel panel = new DynamicSettingsPanel(settings);
+            panel.setLiveUpdate(true);
+            JLabel status = new JLabel();
+            status.setForeground(Color.RED);
+            Editor editor = new Editor(session, window, settings, panel, status, baseline);
+            editors.put(session, editor);
+            panel.setGroupLoader(editor::load);
+            window.setLayout(new BoxLayout(window.getContentPane(), BoxLayout.Y_AXIS));
+            window.add(panel);
+            window.add(status);
+
+            JPanel buttons = new JPanel();
+            JButton save = new JButton("Save");
+            save.addActionListener(e -> editor.commit());
+            buttons.add(save);
+            JButton revert = new JButton("Revert");
+            revert.addActionListener(e -> editor.revert());
+            buttons.add(revert);
+            window.add(buttons);
+
+            window.pack();
+            window.setVisible(true);
+            window.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+            window.addWindowListener(new java.awt.event.WindowAdapter() {
+                @Override
+                public void windowOpened(java.awt.event.WindowEvent windowEvent) {
+                    // lets the parent measure time to window
+                    outbox.send(out -> out.send(Protocol.SHOWN, session));
+                }
+
+                @Override
+                public void windowClosing(java.awt.event.WindowEvent windowEvent) {
+                    // invalid edits are never saved
+                    if (!editor.commit()) editor.revert();
+                }
+
+                @Override
+                public void windowClosed(java.awt.event.WindowEvent windowEvent) {
+                    editor.close();
+                    editors.remove(session, editor);
+                    SubProcess.windowClosed(session, !editor.abandoned);
+                }
+            });
+            editor.opened();
+        });
+    }
+
+    /**
+     * ends a session whose command couldn't be handled, without touching the other sessions in this process
+     */
+    private static void fail(int session, Exception error) {
+        System.err.println("Failed to handle command for session " + session);
+        error.printStackTrace();
+        String message = String.valueOf(error);
+        outbox.send(out -> {
+            out.begin(Protocol.FAILED, session).writeUTF(message);
+            out.end();
+        });
+        SwingUtilities.invokeLater(() -> {
+            Editor editor = editors.remove(session);
+            // the parent has already been told, so the window goes without a commit or a close
+            if (editor != null) editor.abandon();
+        });
+    }
+
+    private static void resync(int session) {
+        SwingUtilities.invokeLater(() -> {
+            Editor editor = editors.get(session);
+            if (editor != null) editor.sendFull();
+        });
+    }
+
+    /**
+     * groups aren't sent with the rest of the settings, so until one is loaded it only holds defaults
+     */
+    private static void unloadGroups(DynamicSettings settings) {
+        for (DynamicSettings.Setting<?> setting : settings.getSettings()) {
+            if (setting instanceof DynamicSettings.GroupSetting<?> group) group.setLoaded(false);
         }
+    }
 
-        JFrame window = new JFrame();
-        DynamicSettingsPanel panel = new DynamicSettingsPanel(settings);
-        window.setLayout(new BoxLayout(window.getContentPane(), BoxLayout.Y_AXIS));
-        window.add(panel);
+    /**
+     * creates the settings through their generated codec if they have one, without reflection
+     */
+    private static DynamicSettings create(String className) throws ReflectiveOperationException {
+        SettingsClassCodec<?> codec = ClassCodecs.forName(className);
+        if (codec != null) return codec.create();
+        return (DynamicSettings) Class.forName(className).getDeclaredConstructor().newInstance();
+    }
 
-        JButton button = new JButton("Save");
-        button.addActionListener(e -> send(settings, panel));
-        window.add(button);
+    private static void handle(FrameReader reader, byte type) throws Exception {
+        switch (type) {
+            case Protocol.OPEN -> {
+                DynamicSettings settings = create(reader.data().readUTF());
+                unloadGroups(settings);
+                settings.deserialize(reader.settings());
+                open(reader.session(), settings);
+            }
+            case Protocol.OPEN_SCHEMA -> {
+                DynamicSettings settings = new SchemaSettings(reader.data());
+                unloadGroups(settings);
+                settings.deserialize(reader.settings());
+                open(reader.session(), settings);
+            }
+            case Protocol.GROUP -> {
+                String[] path = Protocol.readPath(reader.data());
+                int length = reader.data().readInt();
+                byte[] contents = length == -1 ? null : reader.data().readNBytes(length);
+                int session = reader.session();
+                SwingUtilities.invokeLater(() -> {
+                    Editor editor = editors.get(session);
+                    if (editor != null) editor.loaded(path, contents);
+                });
+            }
+            case Protocol.RESYNC -> resync(reader.session());
+            case Protocol.REJECTED -> {
+                long version = reader.data().readLong();
+                List<String> violations = new ArrayList<>();
+                for (int i = reader.data().readInt(); i > 0; i--) {
+                    violations.add(reader.data().readUTF());
+                }
+                int session = reader.session();
+                SwingUtilities.invokeLater(() -> {
+                    Editor editor = editors.get(session);
+                    if (editor != null) editor.rejected(version, violations);
+                });
+            }
+            default -> System.err.println("Unknown command: " + type);
+        }
+    }
+
+    /**
+     * Streams edits to the parent as they happen. Bursts of edits are batched into one delta, sent once the user
+     * pauses for {@link #PREVIEW_DELAY} ms or at most {@link #PREVIEW_MAX_DELAY} ms after the first edit.
+     * <p>
+     * Edits that break one of the settings' constraints are held back until they're fixed. The parent checks them
+     * too, since a config opened from its schema has no constraints here, and says so if it rejects a delta.
+     * <p>
+     * Frames are written by the {@link #outbox} thread, which also owns the version last sent and the baselines. The
+     * event dispatch thread only decides what to send.
+     */
+    private static class Editor {
+        private static final int PREVIEW_DELAY = 150;
+        private static final int PREVIEW_MAX_DELAY = 500;
 
-//        JButton button2 = new JButton("Close");
-//        button2.addActionListener(e -> window.dispose());
-//        window.add(button2);
+        private final int id;
+        private final JFrame window;
+        private final DynamicSettings settings;
+        private final DynamicSettingsPanel panel;
+        private final JLabel status;
+        private final Timer preview;
+        private final DynamicSettings.Subscription subscription;
+        private final Map<List<String>, CompletableFuture<Void>> loads = new HashMap<>();
+        // outbox keys, so only one delta and one snapshot of this config wait at a time
+        private final Object changesKey = new Object();
+        private final Object fullKey = new Object();
+        private long pendingSince = -1;
+        private boolean abandoned;
 
-        window.pack();
-        window.setVisible(true);
-        window.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        // only touched on the outbox thread
+        // groups loaded since the last commit, which the baseline doesn't cover
+        private final Map<DynamicSettings.GroupSetting<?>, byte[]> groupBaselines = new LinkedHashMap<>();
+        private byte[] baseline;
+        private long sent;
+
+        private Editor(int id, JFrame window, DynamicSettings settings, DynamicSettingsPanel panel, JLabel status, byte[] baseline) {
+            this.id = id;
+            this.window = window;
+            this.settings = settings;
+            this.panel = panel;
+            this.status = status;
+            this.baseline = baseline;
+            this.preview = new Timer(PREVIEW_DELAY, e -> this.flush());
+            this.preview.setRepeats(false);
+            this.subscription = settings.addListener(SwingUtilities::invokeLater, e -> this.edited());
+        }
+
+        private void opened() {
+            outbox.send(out -> {
+                this.sent = this.settings.getModCount();
+                out.begin(Protocol.OPENED, this.id).writeLong(this.sent);
+                out.end();
+            });
+        }
 
-        window.addWindowListener(new java.awt.event.WindowAdapter() {
-            @Override
-            public void windowClosing(java.awt.event.WindowEvent windowEvent) {
-                send(settings, panel);
+        private void edited() {
+            long now = System.currentTimeMillis();
+            if (this.pendingSince == -1) this.pendingSince = now;
+            int delay = (int) Math.min(PREVIEW_DELAY, Math.max(0, this.pendingSince + PREVIEW_MAX_DELAY - now));
+            this.preview.setInitialDelay(delay);
+            this.preview.restart();
+        }
+
+        /**
+         * @return the violations that kept the edits from being sent
+         */
+        private List<String> flush() {
+            this.preview.stop();
+            this.pendingSince = -1;
+            return this.sendChanges();
+        }
+
+        private static byte[] capture(DynamicSettings settings) {
+            try {
+                return SettingsCodec.BINARY.encode(settings);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        /**
+         * asks the parent for a group's contents, edits made so far are sent first
+         */
+        public CompletableFuture<Void> load(DynamicSettings.GroupSetting<?> group) {
+            String[] path = group.getPath();
+            CompletableFuture<Void> load = this.loads.get(List.of(path));
+            if (load != null) return load;
+            load = new CompletableFuture<>();
+            this.loads.put(List.of(path), load);
+            this.flush();
+            outbox.send(out -> {
+                Protocol.writePath(out.begin(Protocol.EXPAND, this.id), path);
+                out.end();
+            });
+            return load;
+        }
+
+        private void loaded(String[] path, byte[] contents) {
+            CompletableFuture<Void> load = this.loads.remove(List.of(path));
+            if (load == null) return;
+            if (contents == null) {
+                load.completeExceptionally(new IllegalArgumentException("No group " + String.join(".", path)));
+                return;
             }
+            // loading isn't an edit, so send what's pending and then move the version past the loaded values
+            this.flush();
+            outbox.send(out -> {
+                try {
+                    DynamicSettings.GroupSetting<?> group = this.settings.getGroup(path);
+                    unloadGroups(group.get());
+                    codec.decode(group.get(), contents);
+                    group.setLoaded(true);
+                    this.groupBaselines.put(group, capture(group.get()));
+                } catch (IOException | RuntimeException e) {
+                    load.completeExceptionally(e);
+                    return;
+                }
+                this.sent = this.settings.getModCount();
+                out.begin(Protocol.EXPANDED, this.id).writeLong(this.sent);
+                out.end();
+                load.complete(null);
+            });
+        }
+
+        /**
+         * @return false if the edits are invalid and weren't committed
+         */
+        public boolean commit() {
+            List<String> violations = this.flush();
+            if (!violations.isEmpty()) {
+                UIManager.getLookAndFeel().provideErrorFeedback(this.panel);
+                return false;
+            }
+            outbox.send(out -> {
+                // the baseline has to match what the parent commits, so anything edited since the flush goes too
+                this.settings.beginWrite();
+                try {
+                    this.writeChanges(out);
+                    this.baseline = capture(this.settings);
+                } finally {
+                    this.settings.endWrite();
+                }
+                this.groupBaselines.clear();
+                out.begin(Protocol.COMMIT, this.id).writeLong(this.sent);
+                out.end();
+            });
+            return true;
+        }
+
+        /**
+         * the parent refused the edits made since {@code version}, so they'll be sent again along with the next ones
+         */
+        private void rejected(long version, List<String> violations) {
+            outbox.send(out -> this.sent = version);
+            this.showViolations(violations);
+        }
+
+        private void showViolations(List<String> violations) {
+            this.status.setText(String.join("; ", violations));
+        }
+
+        public void revert() {
+            this.preview.stop();
+            this.pendingSince = -1;
+            outbox.send(out -> {
+                this.settings.beginWrite();
+                try {
+                    SettingsCodec.BINARY.decode(this.settings, this.baseline);
+                    for (Map.Entry<DynamicSettings.GroupSetting<?>, byte[]> entry : this.groupBaselines.entrySet()) {
+                        SettingsCodec.BINARY.decode(entry.getKey().get(), entry.getValue());
+                    }
+                    this.sent = this.settings.getModCount();
+                } finally {
+                    this.settings.endWrite();
+                }
+                out.begin(Protocol.REVERT, this.id).writeLong(this.sent);
+                out.end();
+                SwingUtilities.invokeLater(() -> {
+                    this.panel.reload();
+                    this.showViolations(this.settings.getViolations());
+                });
+            });
+        }
+
+        public void close() {
+            this.preview.stop();
+            this.subscription.close();
+        }
+
+        private void abandon() {
+            this.close();
+            this.abandoned = true;
+            this.window.dispose();
+        }
+
+        /**
+         * @return the violations that kept the edits from being sent
+         */
+        public List<String> sendChanges() {
+            this.panel.save();
+            List<String> violations = this.settings.getViolations();
+            this.showViolations(violations);
+            if (violations.isEmpty()) outbox.send(this.changesKey, this::writeChanges);
+            return violations;
+        }
+
+        public void sendFull() {
+            outbox.send(this.fullKey, out -> {
+                long version;
+                this.settings.beginWrite();
+                try {
+                    version = this.settings.getModCount();
+                    out.begin(Protocol.FULL, this.id).writeLong(version);
+                    // the parent asks for this when it couldn't read a frame, and may have missed names sent in it
+                    out.settings().reset();
+                    this.settings.serialize(out.settings());
+                } finally {
+                    this.settings.endWrite();
+                }
+                out.end();
+                this.sent = version;
+            });
+        }
+
+        /**
+         * sends the edits made since the last frame, if there are any. The settings are only locked while they're
+         * serialized, not while the frame is written.
+         */
+        private void writeChanges(FrameWriter out) throws IOException {
+            long version;
+            this.settings.beginWrite();
+            try {
+                version = this.settings.getModCount();
+                if (version == this.sent) return;
+                DataOutputStream data = out.begin(Protocol.DELTA, this.id);
+                data.writeLong(this.sent);
+                data.writeLong(version);
+                this.settings.serializeChanges(out.settings(), this.sent);
+            } finally {
+                this.settings.endWrite();
+            }
+            out.end();
+            this.sent = version;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        idleTimeout = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        codec = SettingsCodec.byName(args.length > 1 ? args[1] : "binary");
+        // frames go to the real stdout, and anything else printed in this process goes to stderr, so stray output
+        // can't corrupt the protocol
+        outbox = new FrameOutbox(new FrameWriter(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), codec), "SubProcess writer");
+        System.setOut(System.err);
+        // every way out goes through System.exit, so this is where frames still queued get written
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                if (!outbox.close(CLOSE_TIMEOUT)) System.err.println("Timed out writing the last frames");
+            } catch (InterruptedException ignored) {
+            }
+        }, "SubProcess writer shutdown"));
+
+        // pay for toolkit and look and feel init up front, so the first open only has to build the window
+        SwingUtilities.invokeLater(() -> {
+            Toolkit.getDefaultToolkit();
+            UIManager.getLookAndFeel();
         });
+        scheduleIdleExit();
+        TIMERS.scheduleAtFixedRate(SubProcess::heartbeat, 0, Protocol.HEARTBEAT_INTERVAL, TimeUnit.MILLISECONDS);
 
+        FrameReader reader = new FrameReader(System.in, codec);
+        try {
+            int type;
+            while ((type = reader.next()) != -1) {
+                ConfigEvents.FrameReceived event = new ConfigEvents.FrameReceived();
+                event.begin();
+                try {
+                    handle(reader, (byte) type);
+                } catch (Exception e) {
+                    // frames are read whole, so one that can't be handled only costs its own session
+                    fail(reader.session(), e);
+                }
+                handled++;
+                event.end();
+                if (event.shouldCommit()) {
+                    event.type = Protocol.name((byte) type);
+                    event.bytes = reader.length();
+                    event.commit();
+                }
+            }
+        } catch (Throwable e) {
+            // the windows would keep the process and its heartbeat alive with nothing left to hear the parent
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
     }
 
 }
@@ -0,0 +1,155 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Pattern;
+
+/**
+ * A rule over one or more settings, added with {@link DynamicSettings#addConstraint}. A constraint is only checked
+ * again when one of the settings it depends on changes, so an edit costs the constraints it touches no matter how
+ * many the config has. Rules about a setting that is {@link DynamicSettings.Setting#isEnabled() disabled} don't
+ * apply.
+ * <p>
+ * Constraints don't stop settings from being set, they're reported through {@link #getViolation()}. Use
+ * {@link DynamicSettings#update} to only apply changes that keep them satisfied.
+ */
+public abstract class Constraint {
+    private final DynamicSettings.Setting<?>[] dependencies;
+    DynamicSettings owner;
+    boolean pending;
+    private volatile String violation;
+
+    /**
+     * @param dependencies every setting {@link #check()} reads
+     */
+    protected Constraint(DynamicSettings.Setting<?>... dependencies) {
+        this.dependencies = dependencies.clone();
+    }
+
+    public static Constraint range(DynamicSettings.IntSetting setting, int min, int max) {
+        return new Constraint(setting) {
+            @Override
+            protected String check() {
+                int value = setting.getInt();
+                return value < min || value > max ? setting.getName() + " must be between " + min + " and " + max : null;
+            }
+        };
+    }
+
+    public static Constraint range(DynamicSettings.LongSetting setting, long min, long max) {
+        return new Constraint(setting) {
+            @Override
+            protected String check() {
+                long value = setting.getLong();
+                return value < min || value > max ? setting.getName() + " must be between " + min + " and " + max : null;
+            }
+        };
+    }
+
+    public static Constraint range(DynamicSettings.DoubleSetting setting, double min, double max) {
+        return new Constraint(setting) {
+            @Override
+            protected String check() {
+                double value = setting.getDouble();
+                return value < min || value > max ? setting.getName() + " must be between " + min + " and " + max : null;
+            }
+        };
+    }
+
+    /**
+     * the whole value must match the regex
+     */
+    public static Constraint matches(DynamicSettings.Setting<String> setting, String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return new Constraint(setting) {
+            @Override
+            protected String check() {
+                String value = setting.get();
+                return value == null || !pattern.matcher(value).matches() ? setting.getName() + " must match " + regex : null;
+            }
+        };
+    }
+
+    /**
+     * {@code low} must not be greater than {@code high}, such as for the two ends of a range
+     */
+    public static <T extends Comparable<? super T>> Constraint atMost(DynamicSettings.Setting<T> low, DynamicSettings.Setting<T> high) {
+        return new Constraint(low, high) {
+            @Override
+            protected String check() {
+                T a = low.get();
+                T b = high.get();
+                return a != null && b != null && a.compareTo(b) > 0 ? low.getName() + " must not be greater than " + high.getName() : null;
+            }
+        };
+    }
+
+    public static Constraint of(String message, BooleanSupplier valid, DynamicSettings.Setting<?>... dependencies) {
+        return new Constraint(dependencies) {
+            @Override
+            protected String check() {
+                return valid.getAsBoolean() ? null : message;
+            }
+        };
+    }
+
+    public List<DynamicSettings.Setting<?>> getDependencies() {
+        return List.of(this.dependencies);
+    }
+
+    /**
+     * @return why the settings break this rule, or null if they don't
+     */
+    protected abstract String check();
+
+    /**
+     * @return why the settings broke this rule when it was last checked, or null if they didn't
+     */
+    public String getViolation() {
+        return this.violation;
+    }
+
+    /**
+     * @return a constraint that only applies this rule while {@code condition} is true
+     */
+    public Constraint when(DynamicSettings.Setting<Boolean> condition) {
+        DynamicSettings.Setting<?>[] dependencies = Arrays.copyOf(this.dependencies, this.dependencies.length + 1);
+        dependencies[this.dependencies.length] = condition;
+        return new Constraint(dependencies) {
+            @Override
+            protected String check() {
+                return Objects.equals(condition.get(), Boolean.TRUE) ? Constraint.this.check() : null;
+            }
+        };
+    }
+
+    DynamicSettings.Setting<?>[] dependencies() {
+        return this.dependencies;
+    }
+
+    /**
+     * checks the rule again and remembers the result
+     */
+    String evaluate() {
+        String violation = null;
+        if (this.applies()) {
+            try {
+                violation = this.check();
+            } catch (RuntimeException e) {
+                violation = e.getMessage() != null ? e.getMessage() : e.toString();
+            }
+        }
+        this.violation = violation;
+        return violation;
+    }
+
+    private boolean applies() {
+        for (DynamicSettings.Setting<?> setting : this.dependencies) {
+            if (!setting.isEnabled()) return false;
+        }
+        return true;
+    }
+
+}
@@ -2,28 +2,225 @@ package xyz.wagyourtail.subprocess_config.settings;
 
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
-
+import xyz.wagyourtail.subprocess_config.settings.codec.ClassCodecs;
+import xyz.wagyourtail.subprocess_config.settings.codec.JsonSettingsReader;
+import xyz.wagyourtail.subprocess_config.settings.codec.JsonSettingsWriter;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsClassCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsReader;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+
+import java.io.DataOutput;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
+/**
+ * Reads of a single setting are lock-free. Every write (a {@link Setting#set}, a {@link #deserialize} or a
+ * {@link #copyTo}) runs in a write section guarded by a lock and a sequence counter, so a whole update is applied as
+ * one unit and {@link #snapshot()} can optimistically copy a consistent view of every setting.
+ * <p>
+ * Listeners are notified once per write section, after it ends, with every setting it changed. Changes made before a
+ * listener's executor gets around to delivering are merged into the same {@link ChangeEvent}.
+ * <p>
+ * Settings can be split into sections with {@link #registerGroup}. A group's settings share the write sections and
+ * versions of the settings it is registered in, so a change inside a group is a change to the group.
+ * <p>
+ * {@link Constraint}s added with {@link #addConstraint} are checked as each write section ends, but only the ones
+ * depending on a setting that changed. {@link #update} applies a change only if it keeps them satisfied.
+ */
 public abstract class DynamicSettings {
     private static final System.Logger LOGGER = System.getLogger(DynamicSettings.class.getName());
+    private static final Constraint[] NO_CONSTRAINTS = new Constraint[0];
 
     private final Map<String, Setting<?>> settings = new LinkedHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Subscription> listeners = new CopyOnWriteArrayList<>();
+    private final Set<Setting<?>> pendingChanges = new LinkedHashSet<>();
+    private final List<Constraint> constraints = new ArrayList<>();
+    // constraints to check when the write section ends, only kept by the outermost settings
+    private final List<Constraint> pendingChecks = new ArrayList<>();
+    // the values to roll back to if the running update fails, only kept by the outermost settings
+    private Map<Setting<?>, Object> undo;
+    private volatile long sequence;
+    private int writeDepth;
+    // built on first use under the write lock, which register() also holds, and published through the volatile
+    private volatile String[] names;
+    private volatile Setting<?>[] ordered;
+    // empty if the class has no generated codec that knows every registered setting
+    private volatile Optional<SettingsClassCodec<DynamicSettings>> codec;
+    private volatile long modCount;
+    GroupSetting<?> group;
 
     public Collection<Setting<?>> getSettings() {
         return this.settings.values();
     }
 
+    public String[] getNames() {
+        String[] names = this.names;
+        if (names != null) return names;
+        this.writeLock.lock();
+        try {
+            if (this.names == null) {
+                this.names = this.settings.keySet().toArray(new String[0]);
+            }
+            return this.names;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    private Setting<?>[] ordered() {
+        Setting<?>[] ordered = this.ordered;
+        if (ordered != null) return ordered;
+        this.writeLock.lock();
+        try {
+            if (this.ordered == null) {
+                this.ordered = this.settings.values().toArray(new Setting<?>[0]);
+            }
+            return this.ordered;
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the generated codec for this class, or null if it has none or it doesn't know every registered setting
+     */
+    @SuppressWarnings("unchecked")
+    private SettingsClassCodec<DynamicSettings> codec() {
+        Optional<SettingsClassCodec<DynamicSettings>> codec = this.codec;
+        if (codec != null) return codec.orElse(null);
+        this.writeLock.lock();
+        try {
+            if (this.codec == null) {
+                SettingsClassCodec<DynamicSettings> generated = ClassCodecs.get((Class<DynamicSettings>) this.getClass());
+                this.codec = Optional.ofNullable(generated != null && Arrays.equals(generated.names(), this.getNames()) ? generated : null);
+            }
+            return this.codec.orElse(null);
+        } finally {
+            this.writeLock.unlock();
+        }
+    }
+
+    public long getModCount() {
+        return this.modCount;
+    }
+
+    private long changed(Setting<?> setting) {
+        if (!this.listeners.isEmpty()) {
+            this.pendingChanges.add(setting);
+        }
+        if (setting.constraints.length != 0 || setting.enables != null) {
+            this.top().invalidate(setting);
+        }
+        if (this.group != null) {
+            // take the enclosing settings' version, so versions from either can be compared
+            this.group.changed();
+            return this.modCount = Math.max(this.modCount + 1, this.group.getModified());
+        }
+        return ++this.modCount;
+    }
+
+    /**
+     * the settings the group holding these settings belongs to, whose write section every write here also enters
+     */
+    private DynamicSettings outer() {
+        return this.group != null ? this.group.root() : null;
+    }
+
+    /**
+     * the settings outside of any group that these settings are part of
+     */
+    private DynamicSettings top() {
+        DynamicSettings outer = this.outer();
+        return outer != null ? outer.top() : this;
+    }
+
+    public Subscription addListener(Executor executor, Consumer<ChangeEvent> listener) {
+        return this.addListener(executor, listener, null);
+    }
+
+    private Subscription addListener(Executor executor, Consumer<ChangeEvent> listener, Setting<?> filter) {
+        Subscription subscription = new Subscription(this, executor, listener, filter);
+        this.listeners.add(subscription);
+        return subscription;
+    }
+
+    public void beginWrite() {
+        DynamicSettings outer = this.outer();
+        // always locked outermost first
+        if (outer != null) outer.beginWrite();
+        this.writeLock.lock();
+        if (this.writeDepth++ == 0) {
+            this.sequence++;
+        }
+    }
+
+    public void endWrite() {
+        Set<Setting<?>> changes = null;
+        if (--this.writeDepth == 0) {
+            if (!this.pendingChecks.isEmpty()) this.check();
+            this.sequence++;
+            if (!this.pendingChanges.isEmpty()) {
+                changes = new LinkedHashSet<>(this.pendingChanges);
+                this.pendingChanges.clear();
+            }
+        }
+        this.writeLock.unlock();
+        if (changes != null) {
+            for (Subscription subscription : this.listeners) {
+                subscription.offer(changes);
+            }
+        }
+        DynamicSettings outer = this.outer();
+        if (outer != null) outer.endWrite();
+    }
+
+    public Snapshot snapshot() {
+        Setting<?>[] settings = this.ordered();
+        Object[] values = new Object[settings.length];
+        for (int attempt = 0; attempt < 4; attempt++) {
+            long sequence = this.sequence;
+            if ((sequence & 1) == 0) {
+                long modCount = this.modCount;
+                for (int i = 0; i < settings.length; i++) {
+                    values[i] = settings[i].capture();
+                }
+                if (this.sequence == sequence) {
+                    return new Snapshot(this, values, modCount);
+                }
+            }
+            Thread.onSpinWait();
+        }
+        // writers keep getting in the way, wait for them instead
+        this.beginWrite();
+        try {
+            for (int i = 0; i < settings.length; i++) {
+                values[i] = settings[i].capture();
+            }
+            return new Snapshot(this, values, this.modCount);
+        } finally {
+            this.endWrite();
+        }
+    }
+
     @SuppressWarnings({"rawtypes", "unchecked"})
     public void copyTo(DynamicSettings other) {
-        for (Map.Entry<String, Setting<?>> entry : this.settings.entrySet()) {
-            Setting otherSetting = other.settings.get(entry.getKey());
-            if (otherSetting != null) {
-                otherSetting.set(entry.getValue().get());
+        other.beginWrite();
+        try {
+            for (Map.Entry<String, Setting<?>> entry : this.settings.entrySet()) {
+                Setting otherSetting = other.settings.get(entry.getKey());
+                if (otherSetting != null) {
+                    otherSetting.set(entry.getValue().get());
+                }
             }
+        } finally {
+            other.endWrite();
         }
     }
 
@@ -32,8 +229,34 @@ public abstract class DynamicSettings {
         return (T) this;
     }
 
-    public <T> Setting<T> register(String name, Setting<T> setting) {
-        this.settings.put(name, setting);
+    /**
+     * writes the name and shape of every setting, enough for {@link SchemaSettings} to rebuild an equivalent set of
+     * settings without this class
+     *
+     * @throws UnsupportedOperationException if one of the settings can't be described
+     */
+    public void describe(DataOutput out) throws IOException {
+        String[] names = this.getNames();
+        Setting<?>[] settings = this.ordered();
+        out.writeInt(settings.length);
+        for (int i = 0; i < settings.length; i++) {
+            out.writeUTF(names[i]);
+            settings[i].describe(out);
+        }
+    }
+
+    public <T, S extends Setting<T>> S register(String name, S setting) {
+        setting.owner = this;
+        this.writeLock.lock();
+        try {
+            Setting<?> previous = this.settings.put(name, setting);
+            setting.index = previous != null ? previous.index : this.settings.size() - 1;
+            this.names = null;
+            this.ordered = null;
+            this.codec = null;
+        } finally {
+            this.writeLock.unlock();
+        }
         return setting;
     }
 
@@ -41,23 +264,51 @@ public abstract class DynamicSettings {
         return this.register(name, new PrimitiveSetting<>(name, defaultValue));
     }
 
-    public Setting<Integer> register(String name, int defaultValue, int min, int max) {
+    public Setting<Byte> register(String name, byte defaultValue) {
+        return this.register(name, new PrimitiveSetting<>(name, defaultValue));
+    }
+
+    public Setting<Short> register(String name, short defaultValue) {
+        return this.register(name, new PrimitiveSetting<>(name, defaultValue));
+    }
+
+    public IntSetting register(String name, int defaultValue) {
+        return this.register(name, new IntSetting(name, defaultValue));
+    }
+
+    public LongSetting register(String name, long defaultValue) {
+        return this.register(name, new LongSetting(name, defaultValue));
+    }
+
+    public FloatSetting register(String name, float defaultValue) {
+        return this.register(name, new FloatSetting(name, defaultValue));
+    }
+
+    public DoubleSetting register(String name, double defaultValue) {
+        return this.register(name, new DoubleSetting(name, defaultValue));
+    }
+
+    public BoundedIntSetting register(String name, int defaultValue, int min, int max) {
         return this.register(name, new BoundedIntSetting(name, defaultValue, min, max));
     }
 
-    public Setting<Double> register(String name, double defaultValue, double min, double max) {
+    public BoundedDoubleSetting register(String name, double defaultValue, double min, double max) {
         return this.register(name, new BoundedDoubleSetting(name, defaultValue, min, max));
     }
 
-    public Setting<String> register(String name, String defaultValue) {
+    public StringSetting register(String name, String defaultValue) {
         return this.register(name, new StringSetting(name, defaultValue));
     }
 
-    public Setting<Character> register(String name, Character defaultValue) {
+    public CharSetting register(String name, Character defaultValue) {
         return this.register(name, new CharSetting(name, defaultValue));
     }
 
-    public Setting<Boolean> register(String name, Boolean defaultValue) {
+    public CharSetting register(String name, char defaultValue) {
+        return this.register(name, new CharSetting(name, defaultValue));
+    }
+
+    public BooleanSetting register(String name, Boolean defaultValue) {
         return this.register(name, new BooleanSetting(name, defaultValue));
     }
 
@@ -68,45 +319,428 @@ public abstract class DynamicSettings {
     @SafeVarargs
     @SuppressWarnings("unchecked")
     public final <T, U extends Setting<T>> ListSetting<T, U> registerList(String name, Function<T, ? extends Setting<T>> settingConstructor, T... defaultValue) {
-        this.settings.put(name, new ListSetting<>(name, settingConstructor, defaultValue));
-        return (ListSetting<T, U>) this.settings.get(name);
+        return this.register(name, new ListSetting<>(name, (Function<T, U>) settingConstructor, defaultValue));
+    }
+
+    public <S extends DynamicSettings> GroupSetting<S> registerGroup(String name, S settings) {
+        return this.register(name, new GroupSetting<>(name, settings));
+    }
+
+    /**
+     * @param path the names of a group and the groups it is nested in, outermost first
+     * @throws IllegalArgumentException if there is no such group
+     */
+    public GroupSetting<?> getGroup(String... path) {
+        DynamicSettings settings = this;
+        GroupSetting<?> group = null;
+        for (String name : path) {
+            if (!(settings.settings.get(name) instanceof GroupSetting<?> next)) {
+                throw new IllegalArgumentException("No group " + String.join(".", path));
+            }
+            group = next;
+            settings = next.get();
+        }
+        if (group == null) throw new IllegalArgumentException("Empty group path");
+        return group;
+    }
+
+    /**
+     * adds a rule over settings registered in these settings or their groups, and checks it right away
+     */
+    public <C extends Constraint> C addConstraint(C constraint) {
+        this.beginWrite();
+        try {
+            if (constraint.owner != null) throw new IllegalArgumentException("Constraint was already added");
+            for (Setting<?> setting : constraint.dependencies()) {
+                this.checkRegistered(setting);
+            }
+            for (Setting<?> setting : constraint.dependencies()) {
+                Constraint[] constraints = Arrays.copyOf(setting.constraints, setting.constraints.length + 1);
+                constraints[setting.constraints.length] = constraint;
+                setting.constraints = constraints;
+            }
+            constraint.owner = this;
+            this.constraints.add(constraint);
+            this.top().schedule(constraint);
+        } finally {
+            this.endWrite();
+        }
+        return constraint;
+    }
+
+    /**
+     * disables a setting while {@code condition} isn't true, which also turns off the constraints that depend on it
+     */
+    public void enableWhen(Setting<?> setting, Setting<Boolean> condition) {
+        this.beginWrite();
+        try {
+            this.checkRegistered(setting);
+            this.checkRegistered(condition);
+            for (Setting<?> s = condition; s != null; s = s.enabledBy) {
+                if (s == setting) throw new IllegalArgumentException(setting.getName() + " can't enable itself");
+            }
+            if (setting.enabledBy != null) setting.enabledBy.enables.remove(setting);
+            setting.enabledBy = condition;
+            if (condition.enables == null) condition.enables = new ArrayList<>();
+            condition.enables.add(setting);
+            this.top().invalidate(setting);
+        } finally {
+            this.endWrite();
+        }
+    }
+
+    private void checkRegistered(Setting<?> setting) {
+        if (setting.owner == null || setting.owner.top() != this.top()) {
+            throw new IllegalArgumentException("Setting " + setting.getName() + " is not registered in these settings");
+        }
+    }
+
+    /**
+     * @return the current violations of the constraints added to these settings and their groups
+     */
+    public List<String> getViolations() {
+        List<String> violations = new ArrayList<>();
+        this.collectViolations(violations);
+        return violations;
+    }
+
+    private void collectViolations(List<String> violations) {
+        for (Constraint constraint : this.constraints) {
+            String violation = constraint.getViolation();
+            if (violation != null) violations.add(violation);
+        }
+        for (Setting<?> setting : this.ordered()) {
+            if (setting instanceof GroupSetting<?> group) {
+                DynamicSettings settings = group.get();
+                settings.collectViolations(violations);
+            }
+        }
+    }
+
+    public boolean isValid() {
+        return this.getViolations().isEmpty();
+    }
+
+    /**
+     * runs an update, such as a {@link #deserialize} of changes made elsewhere, as one write section that is only kept
+     * if every constraint it touches is still satisfied. Otherwise each setting it changed is put back and a
+     * {@link ValidationException} is thrown. An update that throws is rolled back the same way.
+     */
+    public void update(Update update) throws IOException {
+        DynamicSettings top = this.top();
+        this.beginWrite();
+        try {
+            if (top.undo != null) {
+                // part of an enclosing update, which checks and rolls back everything at once
+                update.apply();
+                return;
+            }
+            Map<Setting<?>, Object> undo = top.undo = new IdentityHashMap<>();
+            boolean applied = false;
+            try {
+                update.apply();
+                List<String> violations = top.check();
+                if (!violations.isEmpty()) throw new ValidationException(violations);
+                applied = true;
+            } finally {
+                top.undo = null;
+                if (!applied) {
+                    for (Map.Entry<Setting<?>, Object> entry : undo.entrySet()) {
+                        entry.getKey().restore(entry.getValue());
+                    }
+                }
+            }
+        } finally {
+            this.endWrite();
+        }
+    }
+
+    /**
+     * remembers a setting's value before it is first changed by the running update, if there is one
+     */
+    void beforeWrite(Setting<?> setting) {
+        Map<Setting<?>, Object> undo = this.top().undo;
+        if (undo == null) return;
+        while (setting.parent != null) {
+            setting = setting.parent;
+        }
+        if (!undo.containsKey(setting)) undo.put(setting, setting.capture());
+    }
+
+    private void invalidate(Setting<?> setting) {
+        for (Constraint constraint : setting.constraints) {
+            this.schedule(constraint);
+        }
+        if (setting.enables != null) {
+            for (Setting<?> enabled : setting.enables) {
+                this.invalidate(enabled);
+            }
+        }
+    }
+
+    private void schedule(Constraint constraint) {
+        if (constraint.pending) return;
+        constraint.pending = true;
+        this.pendingChecks.add(constraint);
+    }
+
+    /**
+     * @return the violations of the constraints checked
+     */
+    private List<String> check() {
+        List<String> violations = new ArrayList<>(0);
+        for (Constraint constraint : this.pendingChecks) {
+            constraint.pending = false;
+            String violation = constraint.evaluate();
+            if (violation != null) violations.add(violation);
+        }
+        this.pendingChecks.clear();
+        return violations;
     }
 
     @SuppressWarnings("unchecked")
     public final <T, U extends Setting<T>> MapSetting<T, U> registerMap(String name, Function<T, ? extends Setting<T>> settingConstructor, Map<String, T> defaultValue) {
-        this.settings.put(name, new MapSetting<>(name, defaultValue, settingConstructor));
-        return (MapSetting<T, U>) this.settings.get(name);
+        return this.register(name, new MapSetting<>(name, defaultValue, (Function<T, U>) settingConstructor));
+    }
+
+    /**
+     * @param valueType the type of the values, needed to create new entries when the default map is empty
+     */
+    @SuppressWarnings("unchecked")
+    public final <T, U extends Setting<T>> MapSetting<T, U> registerMap(String name, Class<T> valueType, Function<T, ? extends Setting<T>> settingConstructor, Map<String, T> defaultValue) {
+        return this.register(name, new MapSetting<>(name, valueType, defaultValue, (Function<T, U>) settingConstructor));
     }
 
     public void serialize(JsonWriter writer) throws IOException {
-        writer.beginObject();
-        for (Map.Entry<String, Setting<?>> entry : this.settings.entrySet()) {
-            writer.name(entry.getKey());
-            entry.getValue().serialize(writer);
+        this.serialize(new JsonSettingsWriter(writer));
+    }
+
+    public void serialize(SettingsWriter writer) throws IOException {
+        this.serializeChanges(writer, Long.MIN_VALUE);
+    }
+
+    public void serializeChanges(JsonWriter writer, long since) throws IOException {
+        this.serializeChanges(new JsonSettingsWriter(writer), since);
+    }
+
+    public void serializeChanges(SettingsWriter writer, long since) throws IOException {
+        this.write(writer, since, false);
+    }
+
+    /**
+     * writes every setting except the contents of groups, for an editor that loads groups as they're expanded
+     */
+    public void serializeOutline(SettingsWriter writer) throws IOException {
+        this.write(writer, Long.MIN_VALUE, true);
+    }
+
+    private void write(SettingsWriter writer, long since, boolean outline) throws IOException {
+        SettingsClassCodec<DynamicSettings> codec = this.codec();
+        Setting<?>[] settings = this.ordered();
+        this.beginWrite();
+        try {
+            if (codec != null) {
+                codec.serialize(this, writer, since, outline);
+                return;
+            }
+            writer.beginSettings(this.getNames());
+            for (int i = 0; i < settings.length; i++) {
+                // an unloaded group only holds defaults, which mustn't overwrite the real values
+                if (settings[i] instanceof GroupSetting<?> group && (outline || !group.isLoaded())) continue;
+                if (settings[i].isModifiedSince(since)) {
+                    writer.name(i);
+                    settings[i].serializeChanges(writer, since);
+                }
+            }
+            writer.endSettings();
+        } finally {
+            this.endWrite();
         }
-        writer.endObject();
     }
 
     public void deserialize(JsonReader reader) throws IOException {
-        reader.beginObject();
-        while (reader.hasNext()) {
-            String key = reader.nextName();
-            Setting<?> setting = this.settings.get(key);
-            if (setting == null) {
-                LOGGER.log(System.Logger.Level.WARNING, "Unknown setting: {}", key);
-                reader.skipValue();
-                continue;
+        this.deserialize(new JsonSettingsReader(reader));
+    }
+
+    public void deserialize(SettingsReader reader) throws IOException {
+        SettingsClassCodec<DynamicSettings> codec = this.codec();
+        this.beginWrite();
+        try {
+            if (codec != null) {
+                codec.deserialize(this, reader);
+                return;
             }
-            setting.deserialize(reader);
+            reader.beginSettings();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                Setting<?> setting = this.settings.get(key);
+                if (setting == null) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Unknown setting: {0}", key);
+                    reader.skipValue();
+                    continue;
+                }
+                setting.deserialize(reader);
+            }
+            reader.endSettings();
+        } finally {
+            this.endWrite();
+        }
+    }
+
+    /**
+     * a placeholder value of the given type, for creating a collection element before its value is read
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static Object blankValue(Class<?> type) {
+        if (type == Boolean.class) return false;
+        if (type == Character.class) return ' ';
+        if (type == String.class) return "";
+        if (type.isEnum()) return type.getEnumConstants()[0];
+        if (Number.class.isAssignableFrom(type)) {
+            try {
+                return NumberKind.of(type).parse("0");
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public static final class ChangeEvent {
+        private final DynamicSettings settings;
+        private final Set<Setting<?>> changed;
+
+        private ChangeEvent(DynamicSettings settings, Set<Setting<?>> changed) {
+            this.settings = settings;
+            this.changed = changed;
+        }
+
+        public DynamicSettings getSettings() {
+            return this.settings;
+        }
+
+        public Set<Setting<?>> getChanged() {
+            return this.changed;
+        }
+
+        public boolean contains(Setting<?> setting) {
+            return this.changed.contains(setting);
+        }
+    }
+
+    public interface Update {
+        void apply() throws IOException;
+    }
+
+    public static final class Subscription implements AutoCloseable {
+        private final DynamicSettings settings;
+        private final Executor executor;
+        private final Consumer<ChangeEvent> listener;
+        private final Setting<?> filter;
+        private Set<Setting<?>> pending;
+        private volatile boolean closed;
+
+        private Subscription(DynamicSettings settings, Executor executor, Consumer<ChangeEvent> listener, Setting<?> filter) {
+            this.settings = settings;
+            this.executor = executor;
+            this.listener = listener;
+            this.filter = filter;
+        }
+
+        private void offer(Set<Setting<?>> changes) {
+            if (this.filter != null && !changes.contains(this.filter)) return;
+            boolean schedule;
+            synchronized (this) {
+                schedule = this.pending == null;
+                if (schedule) this.pending = new LinkedHashSet<>();
+                this.pending.addAll(changes);
+            }
+            if (!schedule) return;
+            try {
+                this.executor.execute(this::deliver);
+            } catch (RejectedExecutionException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Dropped settings change event", e);
+                synchronized (this) {
+                    this.pending = null;
+                }
+            }
+        }
+
+        private void deliver() {
+            Set<Setting<?>> changes;
+            synchronized (this) {
+                changes = this.pending;
+                this.pending = null;
+            }
+            if (this.closed || changes == null) return;
+            this.listener.accept(new ChangeEvent(this.settings, Collections.unmodifiableSet(changes)));
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+            this.settings.listeners.remove(this);
+        }
+    }
+
+    public static final class Snapshot {
+        private final DynamicSettings settings;
+        private final Object[] values;
+        private final long modCount;
+
+        private Snapshot(DynamicSettings settings, Object[] values, long modCount) {
+            this.settings = settings;
+            this.values = values;
+            this.modCount = modCount;
+        }
+
+        public long getModCount() {
+            return this.modCount;
+        }
+
+        private Object value(Setting<?> setting) {
+            if (setting.owner != this.settings) {
+                throw new IllegalArgumentException("Setting " + setting.getName() + " does not belong to this snapshot");
+            }
+            return this.values[setting.index];
+        }
+
+        /**
+         * the value of a scalar setting, use {@link #getList} and {@link #getMap} for collection settings
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(Setting<T> setting) {
+            return (T) this.value(setting);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> List<T> getList(ListSetting<T, ?> setting) {
+            return (List<T>) this.value(setting);
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> Map<String, T> getMap(MapSetting<T, ?> setting) {
+            return (Map<String, T>) this.value(setting);
+        }
+
+        public Snapshot getGroup(GroupSetting<?> setting) {
+            return (Snapshot) this.value(setting);
         }
-        reader.endObject();
     }
 
 
     public static abstract class Setting<T> {
         protected final Class<T> type;
         private final String name;
-        private T value;
+        private volatile T value;
+        DynamicSettings owner;
+        Setting<?> parent;
+        int index;
+        private volatile long modified;
+        Constraint[] constraints = NO_CONSTRAINTS;
+        Setting<Boolean> enabledBy;
+        // settings enabled by this one
+        List<Setting<?>> enables;
 
         public Setting(String name, T defaultValue, Class<T> type) {
             this.name = name;
@@ -114,74 +748,483 @@ public abstract class DynamicSettings {
             this.type = type;
         }
 
+        /**
+         * for subclasses that keep their own (usually primitive) value field and override {@link #get()} and
+         * {@link #set(Object)}
+         */
+        protected Setting(String name, Class<T> type) {
+            this.name = name;
+            this.type = type;
+        }
+
         public T get() {
             return this.value;
         }
 
         public void set(T value) {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (Objects.equals(this.value, value)) return;
+                this.value = value;
+                this.changed();
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        /**
+         * sets the initial value without counting it as a change
+         */
+        protected void init(T value) {
             this.value = value;
         }
 
+        /**
+         * publishes a new value unconditionally, callers must be in a write section
+         */
+        protected void replace(T value) {
+            this.value = value;
+            this.changed();
+        }
+
+        /**
+         * @return the value to hold in a {@link Snapshot}, collection settings copy out their element values
+         */
+        protected Object capture() {
+            return this.get();
+        }
+
+        /**
+         * sets the value back to one returned by {@link #capture()}, for rolling back an update
+         */
+        @SuppressWarnings("unchecked")
+        protected void restore(Object captured) {
+            this.set((T) captured);
+        }
+
+        protected DynamicSettings root() {
+            Setting<?> setting = this;
+            while (setting.parent != null) {
+                setting = setting.parent;
+            }
+            return setting.owner;
+        }
+
+        /**
+         * enters the owning settings' write section, to be paired with {@link #endWrite(DynamicSettings)} in a
+         * finally block
+         */
+        protected final DynamicSettings beginWrite() {
+            DynamicSettings owner = this.root();
+            if (owner != null) {
+                owner.beginWrite();
+                owner.beforeWrite(this);
+            }
+            return owner;
+        }
+
+        protected static void endWrite(DynamicSettings owner) {
+            if (owner != null) owner.endWrite();
+        }
+
         public String getName() {
             return this.name;
         }
 
-        public abstract void serialize(JsonWriter writer) throws IOException;
+        /**
+         * listens for changes to this setting, bursts of changes are delivered once with the latest value. Only
+         * registered top level settings can be listened to, changes to list and map elements are reported on their
+         * container.
+         */
+        public Subscription addListener(Executor executor, Consumer<? super T> listener) {
+            if (this.owner == null) {
+                throw new IllegalStateException("Setting " + this.name + " is not registered");
+            }
+            return this.owner.addListener(executor, e -> listener.accept(this.get()), this);
+        }
+
+        public long getModified() {
+            return this.modified;
+        }
+
+        /**
+         * @return false while the setting it was {@link DynamicSettings#enableWhen enabled by} isn't true
+         */
+        public boolean isEnabled() {
+            Setting<Boolean> condition = this.enabledBy;
+            return condition == null || condition.isEnabled() && Objects.equals(condition.get(), Boolean.TRUE);
+        }
+
+        public List<Constraint> getConstraints() {
+            return List.of(this.constraints);
+        }
+
+        /**
+         * @return the first violation of a constraint depending on this setting, or null if there is none
+         */
+        public String getViolation() {
+            for (Constraint constraint : this.constraints) {
+                String violation = constraint.getViolation();
+                if (violation != null) return violation;
+            }
+            return null;
+        }
+
+        public boolean isModifiedSince(long version) {
+            return this.modified > version;
+        }
+
+        protected void changed() {
+            if (this.parent != null) {
+                this.parent.childChanged(this);
+                this.modified = this.parent.modified;
+            } else if (this.owner != null) {
+                this.modified = this.owner.changed(this);
+            } else {
+                this.modified++;
+            }
+        }
+
+        /**
+         * called when an element adopted by this setting changes
+         */
+        protected void childChanged(Setting<?> child) {
+            this.changed();
+        }
+
+        protected <S extends Setting<?>> S adopt(S child) {
+            child.parent = this;
+            return child;
+        }
+
+        public void serialize(JsonWriter writer) throws IOException {
+            this.serialize(new JsonSettingsWriter(writer));
+        }
+
+        public void deserialize(JsonReader value) throws IOException {
+            this.deserialize(new JsonSettingsReader(value));
+        }
+
+        /**
+         * writes this setting's kind and whatever the kind needs to be rebuilt, see {@link SchemaSettings}
+         */
+        public void describe(DataOutput out) throws IOException {
+            throw new UnsupportedOperationException(this.getClass().getName() + " can't be described");
+        }
+
+        public abstract void serialize(SettingsWriter writer) throws IOException;
+
+        /**
+         * writes the changes made after {@code since}, collection settings can send less than their whole value
+         */
+        public void serializeChanges(SettingsWriter writer, long since) throws IOException {
+            this.serialize(writer);
+        }
+
+        public abstract void deserialize(SettingsReader value) throws IOException;
+    }
+
+    public static class BooleanSetting extends Setting<Boolean> {
+        public BooleanSetting(String name, Boolean defaultValue) {
+            super(name, defaultValue, Boolean.class);
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.BOOLEAN);
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeBoolean(get());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            set(value.readBoolean());
+        }
+    }
+
+    public enum NumberKind {
+        BYTE,
+        SHORT,
+        INT,
+        LONG,
+        FLOAT,
+        DOUBLE;
+
+        public static NumberKind of(Class<?> type) {
+            return switch (type.getSimpleName()) {
+                case "byte", "Byte" -> BYTE;
+                case "short", "Short" -> SHORT;
+                case "int", "Integer" -> INT;
+                case "long", "Long" -> LONG;
+                case "float", "Float" -> FLOAT;
+                case "double", "Double" -> DOUBLE;
+                default -> throw new IllegalArgumentException("Invalid type: " + type.getName());
+            };
+        }
+
+        public Number parse(String value) {
+            return switch (this) {
+                case BYTE -> Byte.valueOf(value);
+                case SHORT -> Short.valueOf(value);
+                case INT -> Integer.valueOf(value);
+                case LONG -> Long.valueOf(value);
+                case FLOAT -> Float.valueOf(value);
+                case DOUBLE -> Double.valueOf(value);
+            };
+        }
+
+        public void write(SettingsWriter writer, Number value) throws IOException {
+            switch (this) {
+                case BYTE, SHORT, INT -> writer.writeInt(value.intValue());
+                case LONG -> writer.writeLong(value.longValue());
+                case FLOAT -> writer.writeFloat(value.floatValue());
+                case DOUBLE -> writer.writeDouble(value.doubleValue());
+            }
+        }
+
+        public Number read(SettingsReader reader) throws IOException {
+            return switch (this) {
+                case BYTE -> (byte) reader.readInt();
+                case SHORT -> (short) reader.readInt();
+                case INT -> reader.readInt();
+                case LONG -> reader.readLong();
+                case FLOAT -> reader.readFloat();
+                case DOUBLE -> reader.readDouble();
+            };
+        }
+    }
+
+    public static class PrimitiveSetting<T extends Number> extends Setting<T> {
+        private final NumberKind kind;
+
+        @SuppressWarnings("unchecked")
+        public PrimitiveSetting(String name, T defaultValue) {
+            super(name, defaultValue, (Class<T>) defaultValue.getClass());
+            this.kind = NumberKind.of(this.type);
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.NUMBER);
+            out.writeByte(this.kind.ordinal());
+        }
+
+        public NumberKind getKind() {
+            return this.kind;
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            this.kind.write(writer, get());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void deserialize(SettingsReader value) throws IOException {
+            set((T) this.kind.read(value));
+        }
+    }
+
+    public static class IntSetting extends Setting<Integer> {
+        private volatile int value;
+
+        public IntSetting(String name, int defaultValue) {
+            super(name, Integer.class);
+            this.value = defaultValue;
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.INT);
+        }
+
+        public int getInt() {
+            return this.value;
+        }
+
+        public void setInt(int value) {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (this.value == value) return;
+                this.value = value;
+                this.changed();
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        @Override
+        public Integer get() {
+            return this.getInt();
+        }
+
+        @Override
+        public void set(Integer value) {
+            this.setInt(value);
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeInt(this.getInt());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            this.setInt(value.readInt());
+        }
+    }
+
+    public static class LongSetting extends Setting<Long> {
+        private volatile long value;
+
+        public LongSetting(String name, long defaultValue) {
+            super(name, Long.class);
+            this.value = defaultValue;
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.LONG);
+        }
+
+        public long getLong() {
+            return this.value;
+        }
+
+        public void setLong(long value) {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (this.value == value) return;
+                this.value = value;
+                this.changed();
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        @Override
+        public Long get() {
+            return this.getLong();
+        }
+
+        @Override
+        public void set(Long value) {
+            this.setLong(value);
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeLong(this.getLong());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            this.setLong(value.readLong());
+        }
+    }
+
+    public static class FloatSetting extends Setting<Float> {
+        private volatile float value;
+
+        public FloatSetting(String name, float defaultValue) {
+            super(name, Float.class);
+            this.value = defaultValue;
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.FLOAT);
+        }
+
+        public float getFloat() {
+            return this.value;
+        }
+
+        public void setFloat(float value) {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (Float.compare(this.value, value) == 0) return;
+                this.value = value;
+                this.changed();
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        @Override
+        public Float get() {
+            return this.getFloat();
+        }
+
+        @Override
+        public void set(Float value) {
+            this.setFloat(value);
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeFloat(this.getFloat());
+        }
 
-        public abstract void deserialize(JsonReader value) throws IOException;
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            this.setFloat(value.readFloat());
+        }
     }
 
-    public static class BooleanSetting extends Setting<Boolean> {
-        public BooleanSetting(String name, Boolean defaultValue) {
-            super(name, defaultValue, Boolean.class);
+    public static class DoubleSetting extends Setting<Double> {
+        private volatile double value;
+
+        public DoubleSetting(String name, double defaultValue) {
+            super(name, Double.class);
+            this.value = defaultValue;
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            writer.value(get());
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.DOUBLE);
+        }
+
+        public double getDouble() {
+            return this.value;
+        }
+
+        public void setDouble(double value) {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (Double.compare(this.value, value) == 0) return;
+                this.value = value;
+                this.changed();
+            } finally {
+                endWrite(owner);
+            }
         }
 
         @Override
-        public void deserialize(JsonReader value) throws IOException {
-            set(value.nextBoolean());
+        public Double get() {
+            return this.getDouble();
         }
-    }
 
-    public static class PrimitiveSetting<T extends Number> extends Setting<T> {
-        @SuppressWarnings("unchecked")
-        public PrimitiveSetting(String name, T defaultValue) {
-            super(name, defaultValue, (Class<T>) defaultValue.getClass());
+        @Override
+        public void set(Double value) {
+            this.setDouble(value);
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            switch (type.getSimpleName()) {
-                case "int", "Integer" -> writer.value(get().intValue());
-                case "long", "Long" -> writer.value(get().longValue());
-                case "short", "Short" -> writer.value(get().shortValue());
-                case "byte", "Byte" -> writer.value(get().byteValue());
-                case "float", "Float" -> writer.value(get().floatValue());
-                case "double", "Double" -> writer.value(get().doubleValue());
-                default -> throw new RuntimeException("Invalid type: " + type.getName());
-            }
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeDouble(this.getDouble());
         }
 
         @Override
-        @SuppressWarnings("unchecked")
-        public void deserialize(JsonReader value) throws IOException {
-            switch (type.getSimpleName()) {
-                case "int", "Integer" -> set((T) Integer.valueOf(value.nextInt()));
-                case "long", "Long" -> set((T) Long.valueOf(value.nextLong()));
-                case "short", "Short" -> set((T) Short.valueOf((short) value.nextInt()));
-                case "byte", "Byte" -> set((T) Byte.valueOf((byte) value.nextInt()));
-                case "float", "Float" -> set((T) Float.valueOf((float) value.nextDouble()));
-                case "double", "Double" -> set((T) Double.valueOf(value.nextDouble()));
-                default -> throw new RuntimeException("Invalid type: " + type.getName());
-            }
+        public void deserialize(SettingsReader value) throws IOException {
+            this.setDouble(value.readDouble());
         }
     }
 
-    public static class BoundedIntSetting extends PrimitiveSetting<Integer> {
+    public static class BoundedIntSetting extends IntSetting {
         private final int min;
         private final int max;
 
@@ -191,6 +1234,13 @@ public abstract class DynamicSettings {
             this.max = max;
         }
 
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.BOUNDED_INT);
+            out.writeInt(this.min);
+            out.writeInt(this.max);
+        }
+
         public int getMin() {
             return this.min;
         }
@@ -200,15 +1250,15 @@ public abstract class DynamicSettings {
         }
 
         @Override
-        public void set(Integer value) {
+        public void setInt(int value) {
             if (value < this.min || value > this.max) {
                 throw new IllegalArgumentException("Value out of bounds: " + value);
             }
-            super.set(value);
+            super.setInt(value);
         }
     }
 
-    public static class BoundedDoubleSetting extends PrimitiveSetting<Double> {
+    public static class BoundedDoubleSetting extends DoubleSetting {
         private final double min;
         private final double max;
 
@@ -218,6 +1268,13 @@ public abstract class DynamicSettings {
             this.max = max;
         }
 
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.BOUNDED_DOUBLE);
+            out.writeDouble(this.min);
+            out.writeDouble(this.max);
+        }
+
         public double getMin() {
             return this.min;
         }
@@ -227,11 +1284,11 @@ public abstract class DynamicSettings {
         }
 
         @Override
-        public void set(Double value) {
+        public void setDouble(double value) {
             if (value < this.min || value > this.max) {
                 throw new IllegalArgumentException("Value out of bounds: " + value);
             }
-            super.set(value);
+            super.setDouble(value);
         }
     }
 
@@ -241,13 +1298,18 @@ public abstract class DynamicSettings {
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            writer.value(get());
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.STRING);
         }
 
         @Override
-        public void deserialize(JsonReader value) throws IOException {
-            set(value.nextString());
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeString(get());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            set(value.readString());
         }
     }
 
@@ -257,36 +1319,144 @@ public abstract class DynamicSettings {
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            writer.value(get());
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.CHAR);
         }
 
         @Override
-        public void deserialize(JsonReader value) throws IOException {
-            set(value.nextString().charAt(0));
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeChar(get());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            set(value.readChar());
         }
     }
 
+    /**
+     * Changes made since a given version can be sent as a patch of element level operations instead of the whole
+     * list, as long as the recent operations are still in the journal. A patch is written as a map from operation to
+     * argument, so readers tell it apart from a full list:
+     * <ul>
+     *     <li>{@code +i}: insert the value at index i</li>
+     *     <li>{@code =i}: set the element at index i to the value</li>
+     *     <li>{@code -i}: remove the element at index i</li>
+     *     <li>{@code >i}: move the element at index i to the index given as the value</li>
+     * </ul>
+     */
     public static class ListSetting<T, U extends Setting<T>> extends Setting<List<U>> {
+        private static final int JOURNAL_SIZE = 256;
+
         protected final Class<T> elementType;
         protected final Function<T, U> settingConstructor;
+        private final ArrayDeque<ListOp> journal = new ArrayDeque<>();
+        private long journalStart;
 
         @SafeVarargs
         @SuppressWarnings({"unchecked", "rawtypes"})
         public ListSetting(String name, Function<T, U> settingConstructor, T... defaultValue) {
-            super(name, new ArrayList<>(Arrays.stream(defaultValue).map(settingConstructor).collect(Collectors.toList())), (Class) List.class);
+            super(name, List.of(), (Class) List.class);
             this.settingConstructor = settingConstructor;
             this.elementType = (Class<T>) defaultValue.getClass().getComponentType();
+            List<U> list = new ArrayList<>(defaultValue.length);
+            for (T value : defaultValue) {
+                list.add(this.create(value));
+            }
+            this.init(Collections.unmodifiableList(list));
+            this.reindex(list);
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.LIST);
+            U sample;
+            try {
+                sample = this.prototype();
+            } catch (RuntimeException e) {
+                throw new UnsupportedOperationException("Can't describe the elements of " + this.getName(), e);
+            }
+            sample.describe(out);
+        }
+
+        protected U create(T value) {
+            return this.adopt(this.settingConstructor.apply(value));
+        }
+
+        /**
+         * an element that isn't part of the list, to find out what kind of setting the elements are
+         */
+        @SuppressWarnings("unchecked")
+        protected U prototype() {
+            List<U> list = get();
+            return list.isEmpty() ? this.settingConstructor.apply((T) blankValue(this.elementType)) : list.get(0);
+        }
+
+        /**
+         * a new element to deserialize a value into
+         */
+        @SuppressWarnings("unchecked")
+        protected U blank() {
+            return this.create((T) blankValue(this.elementType));
+        }
+
+        public Class<?> getElementType() {
+            return this.elementType != Object.class ? this.elementType : this.prototype().type;
+        }
+
+        /**
+         * the published list is never modified, so readers can use it without locking. Modifications copy it and
+         * publish the copy.
+         */
+        protected void publish(List<U> list) {
+            this.reindex(list);
+            this.replace(Collections.unmodifiableList(list));
+        }
+
+        private void reindex(List<U> list) {
+            for (int i = 0; i < list.size(); i++) {
+                list.get(i).index = i;
+            }
+        }
+
+        private void record(char type, int index, int to, U element) {
+            if (this.journal.size() == JOURNAL_SIZE) {
+                this.journalStart = this.journal.removeFirst().version;
+            }
+            this.journal.addLast(new ListOp(this.getModified(), type, index, to, element));
+        }
+
+        /**
+         * forgets the journal, changes from before now can only be sent as the whole list
+         */
+        private void resetJournal() {
+            this.journal.clear();
+            this.journalStart = this.getModified();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void childChanged(Setting<?> child) {
+            this.changed();
+            if (child.parent == this) this.record('=', child.index, 0, (U) child);
         }
 
         public void add(T value) {
-            get().add(this.settingConstructor.apply(value));
+            this.insert(get().size(), value);
         }
 
         public T get(int index) {
             return get().get(index).get();
         }
 
+        public void set(int index, T value) {
+            get().get(index).set(value);
+        }
+
+        public int size() {
+            return get().size();
+        }
+
         public Iterator<T> iterator() {
             return new Iterator<>() {
                 private final Iterator<U> iterator = get().iterator();
@@ -304,53 +1474,370 @@ public abstract class DynamicSettings {
         }
 
         public void remove(int index) {
-            get().remove(index);
+            DynamicSettings owner = this.beginWrite();
+            try {
+                List<U> list = new ArrayList<>(get());
+                // detach it, so later edits to the removed element don't count as changes to this list
+                list.remove(index).parent = null;
+                this.publish(list);
+                this.record('-', index, 0, null);
+            } finally {
+                endWrite(owner);
+            }
         }
 
         public void insert(int index, T value) {
-            get().add(index, this.settingConstructor.apply(value));
+            DynamicSettings owner = this.beginWrite();
+            try {
+                List<U> list = new ArrayList<>(get());
+                U element = this.create(value);
+                list.add(index, element);
+                this.publish(list);
+                this.record('+', index, 0, element);
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        public void move(int from, int to) {
+            if (from == to) return;
+            DynamicSettings owner = this.beginWrite();
+            try {
+                List<U> list = new ArrayList<>(get());
+                list.add(to, list.remove(from));
+                this.publish(list);
+                this.record('>', from, to, null);
+            } finally {
+                endWrite(owner);
+            }
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            writer.beginArray();
+        protected Object capture() {
+            List<U> list = get();
+            List<T> values = new ArrayList<>(list.size());
+            for (U setting : list) {
+                values.add(setting.get());
+            }
+            return Collections.unmodifiableList(values);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void restore(Object captured) {
+            for (U element : get()) {
+                element.parent = null;
+            }
+            List<U> list = new ArrayList<>();
+            for (T value : (List<T>) captured) {
+                list.add(this.create(value));
+            }
+            this.publish(list);
+            this.resetJournal();
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.beginList(get().size());
             for (Setting<T> setting : get()) {
                 setting.serialize(writer);
             }
-            writer.endArray();
+            writer.endList();
         }
 
         @Override
-        public void deserialize(JsonReader value) throws IOException {
-            value.beginArray();
+        public void serializeChanges(SettingsWriter writer, long since) throws IOException {
+            int ops = 0;
+            if (since >= this.journalStart) {
+                for (ListOp op : this.journal) {
+                    if (op.version > since) ops++;
+                }
+            }
+            // a patch is no smaller than the list once most of the elements have changed
+            if (ops == 0 || ops > get().size()) {
+                this.serialize(writer);
+                return;
+            }
+            writer.beginMap(ops);
+            for (ListOp op : this.journal) {
+                if (op.version <= since) continue;
+                writer.key(op.type + Integer.toString(op.index));
+                switch (op.type) {
+                    case '+', '=' -> op.element.serialize(writer);
+                    case '-' -> writer.writeInt(1);
+                    case '>' -> writer.writeInt(op.to);
+                }
+            }
+            writer.endMap();
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (value.peekMap()) {
+                    this.deserializePatch(value);
+                    return;
+                }
+                // existing elements are updated in place, the list is only copied if its length changes
+                List<U> current = get();
+                List<U> list = null;
+                int size = 0;
+                value.beginList();
+                while (value.hasNext()) {
+                    if (size < current.size()) {
+                        current.get(size).deserialize(value);
+                    } else {
+                        if (list == null) list = new ArrayList<>(current);
+                        U setting = this.blank();
+                        setting.deserialize(value);
+                        list.add(setting);
+                    }
+                    size++;
+                }
+                value.endList();
+                if (size < current.size()) {
+                    list = new ArrayList<>(current.subList(0, size));
+                    for (U removed : current.subList(size, current.size())) {
+                        removed.parent = null;
+                    }
+                }
+                if (list != null) {
+                    this.publish(list);
+                    this.resetJournal();
+                }
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        private void deserializePatch(SettingsReader value) throws IOException {
+            List<U> list = new ArrayList<>(get());
+            value.beginMap();
             while (value.hasNext()) {
-                U setting = this.settingConstructor.apply(null);
-                setting.deserialize(value);
-                get().add(setting);
+                String op = value.nextKey();
+                int index;
+                try {
+                    index = Integer.parseInt(op.substring(1));
+                } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                    throw new IOException("Invalid list operation: " + op);
+                }
+                if (index < 0 || index > list.size() || index == list.size() && op.charAt(0) != '+') {
+                    throw new IOException("List operation " + op + " out of bounds for size " + list.size());
+                }
+                switch (op.charAt(0)) {
+                    case '+' -> {
+                        U setting = this.blank();
+                        setting.deserialize(value);
+                        list.add(index, setting);
+                    }
+                    case '=' -> list.get(index).deserialize(value);
+                    case '-' -> {
+                        for (int count = value.readInt(); count > 0; count--) {
+                            list.remove(index).parent = null;
+                        }
+                    }
+                    case '>' -> list.add(value.readInt(), list.remove(index));
+                    default -> throw new IOException("Invalid list operation: " + op);
+                }
+            }
+            value.endMap();
+            this.publish(list);
+            this.resetJournal();
+        }
+
+        private static final class ListOp {
+            private final long version;
+            private final char type;
+            private final int index;
+            private final int to;
+            private final Setting<?> element;
+
+            private ListOp(long version, char type, int index, int to, Setting<?> element) {
+                this.version = version;
+                this.type = type;
+                this.index = index;
+                this.to = to;
+                this.element = element;
             }
-            value.endArray();
         }
     }
 
+    /**
+     * Like {@link ListSetting}, changes can be sent as a patch of the keys put or removed since a given version. A
+     * patch is written as a list, alternating {@code +key} and its value or {@code -key}, so readers tell it apart
+     * from a full map.
+     */
     public static class MapSetting<T, U extends Setting<T>> extends Setting<Map<String, Setting<T>>> {
+        private static final int TOMBSTONES = 256;
+
+        protected final Class<T> valueType;
         private final Function<T, U> settingConstructor;
+        private final LinkedHashMap<String, Long> keyChanges = new LinkedHashMap<>();
+        private long trackedSince;
+        private int tombstones;
 
-        @SuppressWarnings({"rawtypes", "unchecked"})
+        /**
+         * takes the value type from the default values, an empty default leaves it unknown
+         */
+        @SuppressWarnings("unchecked")
         public MapSetting(String name, Map<String, T> defaultValue, Function<T, U> settingConstructor) {
-            super(name, new HashMap<>(defaultValue.entrySet().stream().map(e -> Map.entry(e.getKey(), settingConstructor.apply(e.getValue()))).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))), (Class) Map.class);
+            this(name, (Class<T>) valueType(defaultValue), defaultValue, settingConstructor);
+        }
+
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        public MapSetting(String name, Class<T> valueType, Map<String, T> defaultValue, Function<T, U> settingConstructor) {
+            super(name, Map.of(), (Class) Map.class);
+            this.valueType = valueType;
             this.settingConstructor = settingConstructor;
+            Map<String, Setting<T>> map = new LinkedHashMap<>();
+            for (Map.Entry<String, T> entry : defaultValue.entrySet()) {
+                map.put(entry.getKey(), this.adopt(settingConstructor.apply(entry.getValue())));
+            }
+            this.init(Collections.unmodifiableMap(map));
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.MAP);
+            Setting<T> sample;
+            try {
+                sample = this.prototype();
+            } catch (RuntimeException e) {
+                throw new UnsupportedOperationException("Can't describe the elements of " + this.getName(), e);
+            }
+            sample.describe(out);
+        }
+
+        private static Class<?> valueType(Map<String, ?> values) {
+            Iterator<?> it = values.values().iterator();
+            Object value = it.hasNext() ? it.next() : null;
+            if (value == null) return Object.class;
+            return value instanceof Enum<?> e ? e.getDeclaringClass() : value.getClass();
+        }
+
+        /**
+         * an element that isn't part of the map, to find out what kind of setting the elements are
+         */
+        @SuppressWarnings("unchecked")
+        protected Setting<T> prototype() {
+            Iterator<Setting<T>> values = get().values().iterator();
+            return values.hasNext() ? values.next() : this.settingConstructor.apply((T) blankValue(this.valueType));
+        }
+
+        public Class<?> getValueType() {
+            return this.valueType != Object.class ? this.valueType : this.prototype().type;
+        }
+
+        /**
+         * like {@link ListSetting#publish}, the published map is never modified in place
+         */
+        protected void publish(Map<String, Setting<T>> map) {
+            this.replace(Collections.unmodifiableMap(map));
+        }
+
+        /**
+         * a new element to deserialize a value into, seeded from an existing element if the value type isn't known
+         */
+        @SuppressWarnings("unchecked")
+        protected U blank() {
+            Object blank = blankValue(this.valueType);
+            if (blank == null) {
+                Iterator<Setting<T>> values = get().values().iterator();
+                if (values.hasNext()) blank = values.next().get();
+            }
+            return this.adopt(this.settingConstructor.apply((T) blank));
+        }
+
+        private void record(String key, boolean removed) {
+            Long previous = this.keyChanges.remove(key);
+            if (previous != null && previous < 0) this.tombstones--;
+            // removed keys are stored negated
+            this.keyChanges.put(key, removed ? -this.getModified() : this.getModified());
+            if (removed && ++this.tombstones > TOMBSTONES) {
+                // forget the oldest changes, anything from before them has to be sent in full
+                Iterator<Map.Entry<String, Long>> it = this.keyChanges.entrySet().iterator();
+                while (this.tombstones > TOMBSTONES / 2) {
+                    long version = it.next().getValue();
+                    it.remove();
+                    if (version < 0) this.tombstones--;
+                    this.trackedSince = Math.abs(version);
+                }
+            }
+        }
+
+        private void resetTracking() {
+            this.keyChanges.clear();
+            this.tombstones = 0;
+            this.trackedSince = this.getModified();
+        }
+
+        @Override
+        protected void childChanged(Setting<?> child) {
+            this.changed();
+            for (Map.Entry<String, Setting<T>> entry : get().entrySet()) {
+                if (entry.getValue() == child) {
+                    this.record(entry.getKey(), false);
+                    return;
+                }
+            }
         }
 
         public void put(String key, T value) {
-            get().put(key, this.settingConstructor.apply(value));
+            DynamicSettings owner = this.beginWrite();
+            try {
+                Map<String, Setting<T>> map = new LinkedHashMap<>(get());
+                Setting<T> previous = map.put(key, this.adopt(this.settingConstructor.apply(value)));
+                if (previous != null) previous.parent = null;
+                this.publish(map);
+                this.record(key, false);
+            } finally {
+                endWrite(owner);
+            }
         }
 
         public T get(String key) {
             return get().get(key).get();
         }
 
+        public int size() {
+            return get().size();
+        }
+
         public void remove(String key) {
-            get().remove(key);
+            DynamicSettings owner = this.beginWrite();
+            try {
+                if (!get().containsKey(key)) return;
+                Map<String, Setting<T>> map = new LinkedHashMap<>(get());
+                map.remove(key).parent = null;
+                this.publish(map);
+                this.record(key, true);
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        @Override
+        protected Object capture() {
+            Map<String, T> values = new LinkedHashMap<>();
+            for (Map.Entry<String, Setting<T>> entry : get().entrySet()) {
+                values.put(entry.getKey(), entry.getValue().get());
+            }
+            return Collections.unmodifiableMap(values);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void restore(Object captured) {
+            for (Setting<T> element : get().values()) {
+                element.parent = null;
+            }
+            Map<String, Setting<T>> map = new LinkedHashMap<>();
+            for (Map.Entry<String, T> entry : ((Map<String, T>) captured).entrySet()) {
+                map.put(entry.getKey(), this.adopt(this.settingConstructor.apply(entry.getValue())));
+            }
+            this.publish(map);
+            this.resetTracking();
         }
 
         public Set<String> keySet() {
@@ -358,43 +1845,278 @@ public abstract class DynamicSettings {
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            writer.beginObject();
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.beginMap(get().size());
             for (Map.Entry<String, Setting<T>> entry : get().entrySet()) {
-                writer.name(entry.getKey());
+                writer.key(entry.getKey());
                 entry.getValue().serialize(writer);
             }
-            writer.endObject();
+            writer.endMap();
         }
 
         @Override
-        public void deserialize(JsonReader value) throws IOException {
-            value.beginObject();
-            while (value.hasNext()) {
-                String key = value.nextName();
-                Setting<T> setting = get().get(key);
-                if (setting == null) {
-                    throw new IOException("Unknown setting: " + key);
+        public void serializeChanges(SettingsWriter writer, long since) throws IOException {
+            int size = 0;
+            if (since >= this.trackedSince) {
+                for (Map.Entry<String, Long> entry : this.keyChanges.entrySet()) {
+                    if (Math.abs(entry.getValue()) > since) size += entry.getValue() < 0 ? 1 : 2;
+                }
+            }
+            // a full map writes a key and a value per entry
+            if (size == 0 || size > 2 * get().size()) {
+                this.serialize(writer);
+                return;
+            }
+            Map<String, Setting<T>> map = get();
+            writer.beginList(size);
+            for (Map.Entry<String, Long> entry : this.keyChanges.entrySet()) {
+                if (Math.abs(entry.getValue()) <= since) continue;
+                if (entry.getValue() < 0) {
+                    writer.writeString("-" + entry.getKey());
+                } else {
+                    writer.writeString("+" + entry.getKey());
+                    map.get(entry.getKey()).serialize(writer);
+                }
+            }
+            writer.endList();
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            if (!value.peekMap()) {
+                this.deserializePatch(value);
+                return;
+            }
+            DynamicSettings owner = this.beginWrite();
+            try {
+                // existing elements are updated in place, the map is only rebuilt once its keys differ
+                Map<String, Setting<T>> current = get();
+                Iterator<String> keys = current.keySet().iterator();
+                Map<String, Setting<T>> map = null;
+                int matched = 0;
+                value.beginMap();
+                while (value.hasNext()) {
+                    String key = value.nextKey();
+                    if (map == null && (!keys.hasNext() || !keys.next().equals(key))) {
+                        map = this.prefix(current, matched);
+                    }
+                    Setting<T> setting = current.get(key);
+                    if (setting == null) setting = this.blank();
+                    setting.deserialize(value);
+                    if (map != null) {
+                        map.put(key, setting);
+                    } else {
+                        matched++;
+                    }
+                }
+                value.endMap();
+                if (map == null && keys.hasNext()) map = this.prefix(current, matched);
+                if (map != null) {
+                    for (Map.Entry<String, Setting<T>> entry : current.entrySet()) {
+                        if (map.get(entry.getKey()) != entry.getValue()) entry.getValue().parent = null;
+                    }
+                    this.publish(map);
+                    this.resetTracking();
+                }
+            } finally {
+                endWrite(owner);
+            }
+        }
+
+        private Map<String, Setting<T>> prefix(Map<String, Setting<T>> map, int size) {
+            Map<String, Setting<T>> prefix = new LinkedHashMap<>();
+            Iterator<Map.Entry<String, Setting<T>>> entries = map.entrySet().iterator();
+            for (int i = 0; i < size; i++) {
+                Map.Entry<String, Setting<T>> entry = entries.next();
+                prefix.put(entry.getKey(), entry.getValue());
+            }
+            return prefix;
+        }
+
+        private void deserializePatch(SettingsReader value) throws IOException {
+            DynamicSettings owner = this.beginWrite();
+            try {
+                Map<String, Setting<T>> map = new LinkedHashMap<>(get());
+                value.beginList();
+                while (value.hasNext()) {
+                    String op = value.readString();
+                    if (op == null || op.isEmpty()) throw new IOException("Invalid map operation: " + op);
+                    String key = op.substring(1);
+                    switch (op.charAt(0)) {
+                        case '+' -> {
+                            Setting<T> setting = map.get(key);
+                            if (setting == null) {
+                                setting = this.blank();
+                                map.put(key, setting);
+                            }
+                            if (!value.hasNext()) throw new IOException("Missing value for " + op);
+                            setting.deserialize(value);
+                        }
+                        case '-' -> {
+                            Setting<T> removed = map.remove(key);
+                            if (removed != null) removed.parent = null;
+                        }
+                        default -> throw new IOException("Invalid map operation: " + op);
+                    }
                 }
-                setting.deserialize(value);
+                value.endList();
+                this.publish(map);
+                this.resetTracking();
+            } finally {
+                endWrite(owner);
+            }
+        }
+    }
+
+    /**
+     * A named section of settings, held in their own {@link DynamicSettings}. Only the settings in it that changed are
+     * written by {@link DynamicSettings#serializeChanges}, and an editor only loads its contents once the section is
+     * expanded, see {@link #isLoaded()}. Setting a group copies the values of another instance into this one, the
+     * group always keeps the settings it was created with.
+     */
+    public static class GroupSetting<S extends DynamicSettings> extends Setting<S> {
+        private volatile boolean loaded = true;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public GroupSetting(String name, S settings) {
+            super(name, settings, (Class) settings.getClass());
+            if (settings.group != null) {
+                throw new IllegalArgumentException("Settings already belong to group " + settings.group.getName());
+            }
+            settings.group = this;
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            out.writeByte(SchemaSettings.GROUP);
+            get().describe(out);
+        }
+
+        @Override
+        public void set(S value) {
+            if (value != get()) value.copyTo(get());
+        }
+
+        /**
+         * @return false while the group holds placeholder values because its contents haven't been loaded into this
+         * process yet, such a group is left out when serializing
+         */
+        public boolean isLoaded() {
+            return this.loaded;
+        }
+
+        public void setLoaded(boolean loaded) {
+            this.loaded = loaded;
+        }
+
+        /**
+         * @return the names of this group and the groups it is nested in, outermost first, for
+         * {@link DynamicSettings#getGroup(String...)}
+         */
+        public String[] getPath() {
+            List<String> path = new ArrayList<>();
+            for (GroupSetting<?> group = this; group != null; group = group.owner != null ? group.owner.group : null) {
+                if (group.owner == null) throw new IllegalStateException("Group " + group.getName() + " is not registered");
+                path.add(0, group.getName());
             }
-            value.endObject();
+            return path.toArray(new String[0]);
+        }
+
+        @Override
+        protected Object capture() {
+            return get().snapshot();
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            get().serialize(writer);
+        }
+
+        @Override
+        public void serializeChanges(SettingsWriter writer, long since) throws IOException {
+            get().serializeChanges(writer, since);
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            get().deserialize(value);
         }
     }
 
     public static class EnumSetting<E extends Enum<E>> extends Setting<E> {
+        private final E[] constants;
+        private final String[] names;
+
         public EnumSetting(String name, E defaultValue, Class<E> type) {
             super(name, defaultValue, type);
+            this.constants = type.getEnumConstants();
+            this.names = Arrays.stream(this.constants).map(Enum::name).toArray(String[]::new);
         }
 
         @Override
-        public void serialize(JsonWriter writer) throws IOException {
-            writer.value(this.get().name());
+        public void describe(DataOutput out) throws IOException {
+            SchemaSettings.writeChoices(out, this.names);
+        }
+
+        public E[] getConstants() {
+            return this.constants;
         }
 
         @Override
-        public void deserialize(JsonReader value) throws IOException {
-            this.set(Enum.valueOf(this.type, value.nextString()));
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeEnum(this.get().ordinal(), this.get().name());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            this.set(this.constants[value.readEnum(this.names)]);
+        }
+    }
+
+    /**
+     * a choice between named constants, like an {@link EnumSetting} for when the enum class isn't available. Both
+     * serialize the same way, so they can stand in for each other.
+     */
+    public static class ChoiceSetting extends Setting<String> {
+        private final String[] names;
+
+        public ChoiceSetting(String name, String defaultValue, String[] names) {
+            super(name, defaultValue, String.class);
+            this.names = names;
+        }
+
+        @Override
+        public void describe(DataOutput out) throws IOException {
+            SchemaSettings.writeChoices(out, this.names);
+        }
+
+        public String[] getNames() {
+            return this.names;
+        }
+
+        public int indexOf(String name) {
+            for (int i = 0; i < this.names.length; i++) {
+                if (this.names[i].equals(name)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public void set(String value) {
+            if (this.indexOf(value) == -1) {
+                throw new IllegalArgumentException("Unknown constant: " + value);
+            }
+            super.set(value);
+        }
+
+        @Override
+        public void serialize(SettingsWriter writer) throws IOException {
+            writer.writeEnum(this.indexOf(this.get()), this.get());
+        }
+
+        @Override
+        public void deserialize(SettingsReader value) throws IOException {
+            this.set(this.names[value.readEnum(this.names)]);
         }
     }
 
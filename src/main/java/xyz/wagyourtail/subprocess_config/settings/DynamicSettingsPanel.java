@@ -6,9 +6,16 @@ import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
+@SuppressWarnings("serial")
 public class DynamicSettingsPanel extends JPanel {
 
     private static final System.Logger LOGGER = System.getLogger(DynamicSettingsPanel.class.getName());
@@ -35,10 +42,15 @@ public class DynamicSettingsPanel extends JPanel {
         constraints.gridy = gridy++;
         constraints.weighty = 1;
         constraints.fill = GridBagConstraints.BOTH;
-        JScrollPane scrollPane = new JScrollPane(settingsPanel);
-        scrollPane.getVerticalScrollBar().setUnitIncrement(16);
-        scrollPane.getHorizontalScrollBar().setUnitIncrement(16);
-        frame.add(scrollPane, constraints);
+        if (settingsPanel.getView() == View.TABLE) {
+            // the table scrolls itself
+            frame.add(settingsPanel, constraints);
+        } else {
+            JScrollPane scrollPane = new JScrollPane(settingsPanel);
+            scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+            scrollPane.getHorizontalScrollBar().setUnitIncrement(16);
+            frame.add(scrollPane, constraints);
+        }
 
         constraints.gridy = gridy++;
         constraints.weighty = 0;
@@ -53,15 +65,42 @@ public class DynamicSettingsPanel extends JPanel {
     }
 
 
+    /**
+     * configs with more settings than this are shown as a {@link DynamicSettingsTable} by default
+     */
+    public static final int TABLE_THRESHOLD = 500;
+
     private final DynamicSettings settings;
+    private final View view;
     private final List<SettingPanel<?>> settingPanels = new ArrayList<>();
+    private DynamicSettingsTable table;
+    private boolean liveUpdate;
+    private boolean loading;
+    private GroupLoader groupLoader;
+    private DynamicSettings.Subscription validation;
 
     public DynamicSettingsPanel(DynamicSettings settings) {
+        this(settings, settings.getSettings().size() > TABLE_THRESHOLD ? View.TABLE : View.FORM);
+    }
+
+    public DynamicSettingsPanel(DynamicSettings settings, View view) {
         this.settings = settings;
+        this.view = view;
         this.init();
     }
 
+    public View getView() {
+        return this.view;
+    }
+
     public void init() {
+        if (this.view == View.TABLE) {
+            this.setLayout(new BorderLayout());
+            this.table = new DynamicSettingsTable(this.settings);
+            this.table.setLiveUpdate(this.liveUpdate);
+            this.add(new JScrollPane(this.table), BorderLayout.CENTER);
+            return;
+        }
         this.setLayout(new GridBagLayout());
         int gridy = 0;
         for (DynamicSettings.Setting<?> setting : this.settings.getSettings()) {
@@ -76,37 +115,159 @@ public class DynamicSettingsPanel extends JPanel {
     }
 
     public void save() {
+        if (this.table != null) this.table.save();
         for (SettingPanel<?> settingPanel : this.settingPanels) settingPanel.save();
     }
 
+    /**
+     * refreshes every field from the current setting values
+     */
+    public void reload() {
+        if (this.table != null) this.table.reload();
+        this.loading = true;
+        try {
+            for (SettingPanel<?> settingPanel : this.settingPanels) settingPanel.load();
+        } finally {
+            this.loading = false;
+        }
+    }
+
+    public boolean isLiveUpdate() {
+        return this.liveUpdate;
+    }
+
+    /**
+     * when enabled, every valid edit is written to its setting as it happens instead of waiting for {@link #save()}
+     */
+    public void setLiveUpdate(boolean liveUpdate) {
+        this.liveUpdate = liveUpdate;
+        if (this.table != null) this.table.setLiveUpdate(liveUpdate);
+        for (SettingPanel<?> settingPanel : this.settingPanels) {
+            if (settingPanel instanceof GroupSettingPanel<?> group && group.content != null) group.content.setLiveUpdate(liveUpdate);
+        }
+    }
+
+    public GroupLoader getGroupLoader() {
+        return this.groupLoader;
+    }
+
+    /**
+     * sets what loads the contents of groups that aren't {@link DynamicSettings.GroupSetting#isLoaded() loaded} yet
+     * when they're expanded, without one they're shown as they are
+     */
+    public void setGroupLoader(GroupLoader groupLoader) {
+        this.groupLoader = groupLoader;
+        if (this.table != null) this.table.setGroupLoader(groupLoader);
+        for (SettingPanel<?> settingPanel : this.settingPanels) {
+            if (settingPanel instanceof GroupSettingPanel<?> group && group.content != null) group.content.setGroupLoader(groupLoader);
+        }
+    }
+
     public void add(final DynamicSettings.Setting<?> setting, final int gridy) {
+        int first = this.getComponentCount();
         SettingPanel<?> settingPanel = switch (setting.getClass().getSimpleName()) {
             case "BooleanSetting" -> new BooleanSettingPanel((DynamicSettings.BooleanSetting) setting, this, gridy);
             case "PrimitiveSetting" -> new PrimitiveSettingPanel<>((DynamicSettings.PrimitiveSetting<?>) setting, this, gridy);
+            case "IntSetting" -> new PrimitiveSettingPanel<>((DynamicSettings.IntSetting) setting, Integer::valueOf, this, gridy);
+            case "LongSetting" -> new PrimitiveSettingPanel<>((DynamicSettings.LongSetting) setting, Long::valueOf, this, gridy);
+            case "FloatSetting" -> new PrimitiveSettingPanel<>((DynamicSettings.FloatSetting) setting, Float::valueOf, this, gridy);
+            case "DoubleSetting" -> new PrimitiveSettingPanel<>((DynamicSettings.DoubleSetting) setting, Double::valueOf, this, gridy);
             case "BoundedIntSetting" -> new BoundedIntSettingPanel((DynamicSettings.BoundedIntSetting) setting, this, gridy);
             case "BoundedDoubleSetting" -> new BoundedDoubleSettingPanel((DynamicSettings.BoundedDoubleSetting) setting, this, gridy);
             case "StringSetting" -> new StringSettingPanel((DynamicSettings.StringSetting) setting, this, gridy);
             case "CharSetting" -> new CharSettingPanel((DynamicSettings.CharSetting) setting, this, gridy);
+            case "EnumSetting" -> new EnumSettingPanel<>((DynamicSettings.EnumSetting<?>) setting, this, gridy);
+            case "ChoiceSetting" -> new ChoiceSettingPanel((DynamicSettings.ChoiceSetting) setting, this, gridy);
 
-//            case "ListSetting":
-//                this.add(new ListSettingPanel((DynamicSettings.ListSetting<?, ?>) setting));
-//                break;
-//            case "MapSetting":
-//                this.add(new MapSettingPanel((DynamicSettings.MapSetting<?, ?>) setting));
-//                break;
+            case "ListSetting" -> new ListSettingPanel<>((DynamicSettings.ListSetting<?, ?>) setting, this, gridy);
+            case "MapSetting" -> new MapSettingPanel<>((DynamicSettings.MapSetting<?, ?>) setting, this, gridy);
+            case "GroupSetting" -> new GroupSettingPanel<>((DynamicSettings.GroupSetting<?>) setting, this, gridy);
             default -> {
-                LOGGER.log(System.Logger.Level.WARNING, "Unknown setting type: {}", setting.getClass().getSimpleName());
+                LOGGER.log(System.Logger.Level.WARNING, "Unknown setting type: {0}", setting.getClass().getSimpleName());
                 yield null;
             }
         };
-        if (settingPanel != null) this.settingPanels.add(settingPanel);
+        if (settingPanel != null) {
+            settingPanel.row = Arrays.copyOfRange(this.getComponents(), first, this.getComponentCount());
+            settingPanel.showValidation();
+            this.settingPanels.add(settingPanel);
+        }
+    }
+
+    /**
+     * shows which settings are disabled or break a {@link Constraint}, rows are only touched when that changed
+     */
+    public void showValidation() {
+        if (this.table != null) this.table.repaint();
+        for (SettingPanel<?> settingPanel : this.settingPanels) settingPanel.showValidation();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        // any edit can change whether other settings are valid or enabled
+        this.validation = this.settings.addListener(SwingUtilities::invokeLater, e -> this.showValidation());
+        this.showValidation();
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        if (this.validation != null) {
+            this.validation.close();
+            this.validation = null;
+        }
+    }
+
+    /**
+     * parses text typed into an editor as a value of a setting's type
+     *
+     * @throws IllegalArgumentException if the text isn't a valid value
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    static Object parse(Class<?> type, String text) {
+        if (type == String.class) return text;
+        if (type == Character.class) {
+            if (text.length() != 1) throw new IllegalArgumentException("Expected a single character: " + text);
+            return text.charAt(0);
+        }
+        if (type == Boolean.class) {
+            if (!text.equals("true") && !text.equals("false")) throw new IllegalArgumentException("Expected true or false: " + text);
+            return Boolean.parseBoolean(text);
+        }
+        if (type.isEnum()) return Enum.valueOf((Class) type, text);
+        return DynamicSettings.NumberKind.of(type).parse(text);
+    }
+
+    public interface GroupLoader {
+        /**
+         * @return completes once the group's contents are loaded
+         */
+        CompletableFuture<?> load(DynamicSettings.GroupSetting<?> group);
+    }
+
+    public enum View {
+        /**
+         * a typed editor component per setting, laid out up front
+         */
+        FORM,
+        /**
+         * a {@link DynamicSettingsTable}, for large configs
+         */
+        TABLE
     }
 
     public static abstract class SettingPanel<T extends DynamicSettings.Setting<?>> {
         protected final T setting;
+        private final DynamicSettingsPanel owner;
+        // the components this setting added to its panel
+        private Component[] row = new Component[0];
+        private boolean enabled = true;
+        private String violation;
 
         public SettingPanel(T setting, JPanel panel, int gridy) {
             this.setting = setting;
+            this.owner = panel instanceof DynamicSettingsPanel d ? d : null;
             GridBagConstraints gbc = new GridBagConstraints();
             gbc.gridx = 0;
             gbc.gridy = gridy;
@@ -115,7 +276,41 @@ public class DynamicSettingsPanel extends JPanel {
             panel.add(new JLabel(this.setting.getName()), gbc);
         }
 
+        /**
+         * for panels that lay out their own row instead of a label and a field
+         */
+        protected SettingPanel(T setting, JPanel panel) {
+            this.setting = setting;
+            this.owner = panel instanceof DynamicSettingsPanel d ? d : null;
+        }
+
         public abstract void save();
+
+        public abstract void load();
+
+        protected void edited() {
+            if (this.isLive()) this.save();
+        }
+
+        /**
+         * @return whether edits should be saved as they're made
+         */
+        protected boolean isLive() {
+            return this.owner != null && this.owner.isLiveUpdate() && !this.owner.loading;
+        }
+
+        protected void showValidation() {
+            boolean enabled = this.setting.isEnabled();
+            String violation = this.setting.getViolation();
+            if (enabled == this.enabled && Objects.equals(violation, this.violation)) return;
+            this.enabled = enabled;
+            this.violation = violation;
+            for (Component component : this.row) {
+                component.setEnabled(enabled);
+                if (component instanceof JComponent c) c.setToolTipText(violation);
+                if (component instanceof JLabel label) label.setForeground(violation != null ? Color.RED : UIManager.getColor("Label.foreground"));
+            }
+        }
     }
 
     public static class BooleanSettingPanel extends SettingPanel<DynamicSettings.BooleanSetting> {
@@ -139,13 +334,25 @@ public class DynamicSettingsPanel extends JPanel {
         public void save() {
             this.setting.set(this.field.isSelected());
         }
+
+        @Override
+        public void load() {
+            this.field.setSelected(this.setting.get());
+        }
     }
 
-    public static class PrimitiveSettingPanel<T extends Number> extends SettingPanel<DynamicSettings.PrimitiveSetting<T>> implements DocumentListener {
+    public static class PrimitiveSettingPanel<T extends Number> extends SettingPanel<DynamicSettings.Setting<T>> implements DocumentListener {
         private final JTextField field;
+        private final Function<String, T> parser;
 
+        @SuppressWarnings("unchecked")
         public PrimitiveSettingPanel(DynamicSettings.PrimitiveSetting<T> setting, JPanel panel, int gridy) {
+            this(setting, value -> (T) setting.getKind().parse(value), panel, gridy);
+        }
+
+        public PrimitiveSettingPanel(DynamicSettings.Setting<T> setting, Function<String, T> parser, JPanel panel, int gridy) {
             super(setting, panel, gridy);
+            this.parser = parser;
             this.field = new JTextField(this.setting.get().toString());
             this.field.getDocument().addDocumentListener(this);
             GridBagConstraints gbc = new GridBagConstraints();
@@ -172,48 +379,34 @@ public class DynamicSettingsPanel extends JPanel {
             this.update(e);
         }
 
-        @SuppressWarnings("unchecked")
         private void update(DocumentEvent e) {
+            T value;
             try {
-                switch (this.setting.type.getSimpleName()) {
-                    case "int", "Integer" -> Integer.valueOf(e.getDocument().getText(0, e.getDocument().getLength()));
-                    case "long", "Long" -> Long.valueOf(e.getDocument().getText(0, e.getDocument().getLength()));
-                    case "float", "Float" -> Float.valueOf(e.getDocument().getText(0, e.getDocument().getLength()));
-                    case "double", "Double" -> Double.valueOf(e.getDocument().getText(0, e.getDocument().getLength()));
-                    case "byte", "Byte" -> Byte.valueOf(e.getDocument().getText(0, e.getDocument().getLength()));
-                    case "short", "Short" -> Short.valueOf(e.getDocument().getText(0, e.getDocument().getLength()));
-                    default -> {
-                        this.field.setForeground(Color.RED);
-                        return;
-                    }
-                }
+                value = this.parser.apply(e.getDocument().getText(0, e.getDocument().getLength()));
                 this.field.setForeground(Color.BLACK);
             } catch (NumberFormatException | BadLocationException ex) {
                 this.field.setForeground(Color.RED);
+                return;
             }
+            // already parsed, so don't go through save() and parse the text again
+            if (this.isLive()) this.setting.set(value);
         }
 
         @Override
-        @SuppressWarnings("unchecked")
         public void save() {
             try {
-                switch (setting.type.getSimpleName()) {
-                    case "int", "Integer" -> this.setting.set((T) Integer.valueOf(this.field.getText()));
-                    case "long", "Long" -> this.setting.set((T) Long.valueOf(this.field.getText()));
-                    case "float", "Float" -> this.setting.set((T) Float.valueOf(this.field.getText()));
-                    case "double", "Double" -> this.setting.set((T) Double.valueOf(this.field.getText()));
-                    case "byte", "Byte" -> this.setting.set((T) Byte.valueOf(this.field.getText()));
-                    case "short", "Short" -> this.setting.set((T) Short.valueOf(this.field.getText()));
-                    default -> {
-                        this.field.setForeground(Color.RED);
-                        return;
-                    }
-                }
+                this.setting.set(this.parser.apply(this.field.getText()));
                 this.field.setForeground(Color.BLACK);
             } catch (NumberFormatException ex) {
                 this.field.setForeground(Color.RED);
             }
         }
+
+        @Override
+        public void load() {
+            String text = this.setting.get().toString();
+            if (!text.equals(this.field.getText())) this.field.setText(text);
+        }
     }
 
     public static class BoundedIntSettingPanel extends SettingPanel<DynamicSettings.BoundedIntSetting> {
@@ -221,7 +414,8 @@ public class DynamicSettingsPanel extends JPanel {
 
         public BoundedIntSettingPanel(DynamicSettings.BoundedIntSetting setting, JPanel panel, int gridy) {
             super(setting, panel, gridy);
-            this.field = new JSpinner(new SpinnerNumberModel((int) this.setting.get(), this.setting.getMin(), this.setting.getMax(), 1));
+            this.field = new JSpinner(new SpinnerNumberModel(this.setting.getInt(), this.setting.getMin(), this.setting.getMax(), 1));
+            this.field.addChangeListener(e -> this.edited());
             GridBagConstraints gbc = new GridBagConstraints();
             gbc.gridx = 1;
             gbc.gridy = gridy;
@@ -233,7 +427,12 @@ public class DynamicSettingsPanel extends JPanel {
 
         @Override
         public void save() {
-            this.setting.set((int) this.field.getValue());
+            this.setting.setInt((int) this.field.getValue());
+        }
+
+        @Override
+        public void load() {
+            this.field.setValue(this.setting.getInt());
         }
     }
 
@@ -242,7 +441,8 @@ public class DynamicSettingsPanel extends JPanel {
 
         public BoundedDoubleSettingPanel(DynamicSettings.BoundedDoubleSetting setting, JPanel panel, int gridy) {
             super(setting, panel, gridy);
-            this.field = new JSpinner(new SpinnerNumberModel((double) this.setting.get(), this.setting.getMin(), this.setting.getMax(), 0.1));
+            this.field = new JSpinner(new SpinnerNumberModel(this.setting.getDouble(), this.setting.getMin(), this.setting.getMax(), 0.1));
+            this.field.addChangeListener(e -> this.edited());
             GridBagConstraints gbc = new GridBagConstraints();
             gbc.gridx = 1;
             gbc.gridy = gridy;
@@ -254,16 +454,22 @@ public class DynamicSettingsPanel extends JPanel {
 
         @Override
         public void save() {
-            this.setting.set((double) this.field.getValue());
+            this.setting.setDouble((double) this.field.getValue());
+        }
+
+        @Override
+        public void load() {
+            this.field.setValue(this.setting.getDouble());
         }
     }
 
-    public static class StringSettingPanel extends SettingPanel<DynamicSettings.StringSetting> {
+    public static class StringSettingPanel extends SettingPanel<DynamicSettings.StringSetting> implements DocumentListener {
         private final JTextField field;
 
         public StringSettingPanel(DynamicSettings.StringSetting setting, JPanel panel, int gridy) {
             super(setting, panel, gridy);
             this.field = new JTextField(this.setting.get());
+            this.field.getDocument().addDocumentListener(this);
             GridBagConstraints gbc = new GridBagConstraints();
             gbc.gridx = 1;
             gbc.gridy = gridy;
@@ -273,10 +479,31 @@ public class DynamicSettingsPanel extends JPanel {
             panel.add(this.field, gbc);
         }
 
+        @Override
+        public void insertUpdate(DocumentEvent e) {
+            this.edited();
+        }
+
+        @Override
+        public void removeUpdate(DocumentEvent e) {
+            this.edited();
+        }
+
+        @Override
+        public void changedUpdate(DocumentEvent e) {
+            this.edited();
+        }
+
         @Override
         public void save() {
             this.setting.set(this.field.getText());
         }
+
+        @Override
+        public void load() {
+            String text = this.setting.get();
+            if (!Objects.equals(text, this.field.getText())) this.field.setText(text);
+        }
     }
 
     public static class CharSettingPanel extends SettingPanel<DynamicSettings.CharSetting> implements DocumentListener {
@@ -311,17 +538,523 @@ public class DynamicSettingsPanel extends JPanel {
         }
 
         private void update(DocumentEvent e) {
-            if (e.getDocument().getLength() == 1) {
+            if (e.getDocument().getLength() != 1) {
                 this.field.setForeground(Color.RED);
-            } else {
-                this.field.setForeground(Color.BLACK);
+                return;
             }
+            this.field.setForeground(Color.BLACK);
+            this.edited();
         }
 
         @Override
         public void save() {
+            if (this.field.getText().length() != 1) return;
             this.setting.set(this.field.getText().charAt(0));
         }
+
+        @Override
+        public void load() {
+            String text = String.valueOf(this.setting.get());
+            if (!text.equals(this.field.getText())) this.field.setText(text);
+        }
+    }
+
+    public static class EnumSettingPanel<E extends Enum<E>> extends SettingPanel<DynamicSettings.EnumSetting<E>> {
+        private final JComboBox<E> field;
+
+        public EnumSettingPanel(DynamicSettings.EnumSetting<E> setting, JPanel panel, int gridy) {
+            super(setting, panel, gridy);
+            this.field = new JComboBox<>(this.setting.getConstants());
+            this.field.setSelectedItem(this.setting.get());
+            this.field.addActionListener(e -> this.edited());
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.gridx = 1;
+            gbc.gridy = gridy;
+            gbc.insets = new Insets(5, 5, 0, 5);
+            gbc.weightx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            panel.add(this.field, gbc);
+        }
+
+        @Override
+        public void save() {
+            this.setting.set(this.field.getItemAt(this.field.getSelectedIndex()));
+        }
+
+        @Override
+        public void load() {
+            this.field.setSelectedItem(this.setting.get());
+        }
+    }
+
+    public static class ChoiceSettingPanel extends SettingPanel<DynamicSettings.ChoiceSetting> {
+        private final JComboBox<String> field;
+
+        public ChoiceSettingPanel(DynamicSettings.ChoiceSetting setting, JPanel panel, int gridy) {
+            super(setting, panel, gridy);
+            this.field = new JComboBox<>(this.setting.getNames());
+            this.field.setSelectedItem(this.setting.get());
+            this.field.addActionListener(e -> this.edited());
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.gridx = 1;
+            gbc.gridy = gridy;
+            gbc.insets = new Insets(5, 5, 0, 5);
+            gbc.weightx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            panel.add(this.field, gbc);
+        }
+
+        @Override
+        public void save() {
+            this.setting.set((String) this.field.getSelectedItem());
+        }
+
+        @Override
+        public void load() {
+            this.field.setSelectedItem(this.setting.get());
+        }
+    }
+
+    /**
+     * Editors for collections keep every add, remove, move and edit until {@link #save()} like the other panels, and
+     * then replay them on the setting in order, so each is still written as a small incremental change. The list only
+     * renders the visible rows, and a copy of the elements is only made on the first edit, so large collections open as
+     * fast as small ones.
+     */
+    public static abstract class CollectionSettingPanel<T extends DynamicSettings.Setting<?>> extends SettingPanel<T> {
+        protected final JList<String> list;
+        protected final JTextField input = new JTextField(12);
+        protected final JPanel buttons = new JPanel(new FlowLayout(FlowLayout.LEADING, 2, 0));
+        protected final RowModel model = new RowModel();
+        // edits not yet written to the setting, in the order they were made
+        private final List<Runnable> pending = new ArrayList<>();
+        private boolean liveUpdate;
+
+        public CollectionSettingPanel(T setting, JPanel panel, int gridy) {
+            super(setting, panel, gridy);
+            this.list = new JList<>(this.model);
+            // fixed cell sizes let the list skip measuring every row
+            this.list.setFixedCellHeight(this.list.getFontMetrics(this.list.getFont()).getHeight() + 2);
+            this.list.setFixedCellWidth(200);
+            this.list.setVisibleRowCount(8);
+            this.list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            this.list.addMouseListener(new java.awt.event.MouseAdapter() {
+                @Override
+                public void mouseClicked(java.awt.event.MouseEvent e) {
+                    int index = CollectionSettingPanel.this.list.locationToIndex(e.getPoint());
+                    if (e.getClickCount() == 2 && index != -1) CollectionSettingPanel.this.editRow(index);
+                }
+            });
+            this.buttons.add(this.input);
+            JButton remove = new JButton("Remove");
+            remove.addActionListener(e -> {
+                int index = this.list.getSelectedIndex();
+                if (index != -1) this.removeRow(index);
+            });
+            this.addButtons();
+            this.buttons.add(remove);
+
+            JPanel editor = new JPanel(new BorderLayout());
+            editor.add(new JScrollPane(this.list), BorderLayout.CENTER);
+            editor.add(this.buttons, BorderLayout.SOUTH);
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.gridx = 1;
+            gbc.gridy = gridy;
+            gbc.insets = new Insets(5, 5, 0, 5);
+            gbc.weightx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            panel.add(editor, gbc);
+        }
+
+        protected abstract void addButtons();
+
+        protected abstract int size();
+
+        protected abstract String row(int index);
+
+        protected abstract void editRow(int index);
+
+        protected abstract void removeRow(int index);
+
+        /**
+         * writes an edit already shown in the rows to the setting, now if edits are live or otherwise on {@link #save()}
+         */
+        protected void write(Runnable edit) {
+            if (this.isLive()) {
+                edit.run();
+            } else {
+                this.pending.add(edit);
+            }
+        }
+
+        /**
+         * for editors outside a {@link DynamicSettingsPanel}, which otherwise decides whether edits are live
+         */
+        public void setLiveUpdate(boolean liveUpdate) {
+            this.liveUpdate = liveUpdate;
+        }
+
+        @Override
+        protected boolean isLive() {
+            return this.liveUpdate || super.isLive();
+        }
+
+        /**
+         * parses the text, or shows what was wrong with it and returns null
+         */
+        protected Object parse(Class<?> type, String text) {
+            try {
+                return DynamicSettingsPanel.parse(type, text);
+            } catch (IllegalArgumentException e) {
+                JOptionPane.showMessageDialog(this.list, e.getMessage(), "Invalid value", JOptionPane.ERROR_MESSAGE);
+                return null;
+            }
+        }
+
+        /**
+         * replays the edits made since the last save or load, call inside an {@link DynamicSettings#update update} to
+         * have them checked and written as one
+         */
+        @Override
+        public void save() {
+            for (Runnable edit : this.pending) {
+                edit.run();
+            }
+            this.pending.clear();
+        }
+
+        /**
+         * drops the edits not saved yet
+         */
+        @Override
+        public void load() {
+            this.pending.clear();
+            this.model.reset();
+        }
+
+        @SuppressWarnings("serial")
+        protected class RowModel extends AbstractListModel<String> {
+            private int size = -1;
+
+            @Override
+            public int getSize() {
+                if (this.size == -1) this.size = CollectionSettingPanel.this.size();
+                return this.size;
+            }
+
+            @Override
+            public String getElementAt(int index) {
+                return CollectionSettingPanel.this.row(index);
+            }
+
+            // the rows already show the edit, so a size not counted yet comes out right on its own
+            public void added(int index) {
+                if (this.size != -1) this.size++;
+                this.fireIntervalAdded(this, index, index);
+            }
+
+            public void removed(int index) {
+                if (this.size != -1) this.size--;
+                this.fireIntervalRemoved(this, index, index);
+            }
+
+            public void changed(int from, int to) {
+                this.fireContentsChanged(this, Math.min(from, to), Math.max(from, to));
+            }
+
+            public void reset() {
+                int old = this.getSize();
+                this.size = CollectionSettingPanel.this.size();
+                if (old > this.size) this.fireIntervalRemoved(this, this.size, old - 1);
+                if (old < this.size) this.fireIntervalAdded(this, old, this.size - 1);
+                if (this.size > 0) this.fireContentsChanged(this, 0, this.size - 1);
+            }
+        }
+    }
+
+    public static class ListSettingPanel<E> extends CollectionSettingPanel<DynamicSettings.ListSetting<E, ?>> {
+        // the elements as edited, null until the first edit
+        private List<E> values;
+
+        public ListSettingPanel(DynamicSettings.ListSetting<E, ?> setting, JPanel panel, int gridy) {
+            super(setting, panel, gridy);
+        }
+
+        @Override
+        protected void addButtons() {
+            JButton add = new JButton("Add");
+            add.addActionListener(e -> this.addRow());
+            this.input.addActionListener(e -> this.addRow());
+            this.buttons.add(add);
+            JButton up = new JButton("Up");
+            up.addActionListener(e -> this.moveRow(-1));
+            this.buttons.add(up);
+            JButton down = new JButton("Down");
+            down.addActionListener(e -> this.moveRow(1));
+            this.buttons.add(down);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addRow() {
+            Object value = this.parse(this.setting.getElementType(), this.input.getText());
+            if (value == null) return;
+            // insert after the selection, or at the end
+            int index = this.list.getSelectedIndex() == -1 ? this.size() : this.list.getSelectedIndex() + 1;
+            E element = (E) value;
+            this.values().add(index, element);
+            this.write(() -> this.setting.insert(index, element));
+            this.model.added(index);
+            this.list.setSelectedIndex(index);
+            this.list.ensureIndexIsVisible(index);
+            this.input.setText("");
+        }
+
+        private void moveRow(int offset) {
+            int from = this.list.getSelectedIndex();
+            int to = from + offset;
+            if (from == -1 || to < 0 || to >= this.size()) return;
+            this.values().add(to, this.values().remove(from));
+            this.write(() -> this.setting.move(from, to));
+            this.model.changed(from, to);
+            this.list.setSelectedIndex(to);
+            this.list.ensureIndexIsVisible(to);
+        }
+
+        private List<E> values() {
+            if (this.values == null) {
+                this.values = new ArrayList<>(this.setting.size());
+                for (DynamicSettings.Setting<E> element : this.setting.get()) {
+                    this.values.add(element.get());
+                }
+            }
+            return this.values;
+        }
+
+        @Override
+        protected int size() {
+            return this.values != null ? this.values.size() : this.setting.size();
+        }
+
+        @Override
+        protected String row(int index) {
+            if (this.values != null) return index < this.values.size() ? String.valueOf(this.values.get(index)) : "";
+            List<? extends DynamicSettings.Setting<E>> elements = this.setting.get();
+            return index < elements.size() ? String.valueOf(elements.get(index).get()) : "";
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void editRow(int index) {
+            String text = JOptionPane.showInputDialog(this.list, "Value", this.row(index));
+            if (text == null) return;
+            Object value = this.parse(this.setting.getElementType(), text);
+            if (value == null) return;
+            E element = (E) value;
+            this.values().set(index, element);
+            this.write(() -> this.setting.set(index, element));
+            this.model.changed(index, index);
+        }
+
+        @Override
+        protected void removeRow(int index) {
+            this.values().remove(index);
+            this.write(() -> this.setting.remove(index));
+            this.model.removed(index);
+        }
+
+        @Override
+        public void load() {
+            this.values = null;
+            super.load();
+        }
+    }
+
+    public static class MapSettingPanel<E> extends CollectionSettingPanel<DynamicSettings.MapSetting<E, ?>> {
+        // made in addButtons, which runs before this class's field initializers
+        private JTextField valueInput;
+        // maps can't be indexed, so the rows keep their own key order, null until the rows are first shown
+        private List<String> keys;
+        // values put since the last save or load, by key
+        private final Map<String, E> values = new HashMap<>();
+
+        public MapSettingPanel(DynamicSettings.MapSetting<E, ?> setting, JPanel panel, int gridy) {
+            super(setting, panel, gridy);
+        }
+
+        @Override
+        protected void addButtons() {
+            this.valueInput = new JTextField(12);
+            this.buttons.add(this.valueInput);
+            JButton put = new JButton("Put");
+            put.addActionListener(e -> this.putRow());
+            this.valueInput.addActionListener(e -> this.putRow());
+            this.buttons.add(put);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void putRow() {
+            String key = this.input.getText();
+            if (key.isEmpty()) return;
+            Object value = this.parse(this.setting.getValueType(), this.valueInput.getText());
+            if (value == null) return;
+            int index = this.keys().indexOf(key);
+            boolean added = index == -1;
+            if (added) index = this.keys.size();
+            E element = (E) value;
+            this.values.put(key, element);
+            this.write(() -> this.setting.put(key, element));
+            if (added) {
+                this.keys.add(key);
+                this.model.added(index);
+            } else {
+                this.model.changed(index, index);
+            }
+            this.list.setSelectedIndex(index);
+            this.list.ensureIndexIsVisible(index);
+            this.input.setText("");
+            this.valueInput.setText("");
+        }
+
+        private List<String> keys() {
+            if (this.keys == null) this.keys = new ArrayList<>(this.setting.keySet());
+            return this.keys;
+        }
+
+        @Override
+        protected int size() {
+            return this.keys().size();
+        }
+
+        @Override
+        protected String row(int index) {
+            if (index >= this.keys().size()) return "";
+            String key = this.keys.get(index);
+            return key + " = " + this.value(key);
+        }
+
+        private String value(String key) {
+            if (this.values.containsKey(key)) return String.valueOf(this.values.get(key));
+            DynamicSettings.Setting<E> value = this.setting.get().get(key);
+            return value != null ? String.valueOf(value.get()) : "";
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected void editRow(int index) {
+            String key = this.keys().get(index);
+            String text = JOptionPane.showInputDialog(this.list, key, this.value(key));
+            if (text == null) return;
+            Object value = this.parse(this.setting.getValueType(), text);
+            if (value == null) return;
+            E element = (E) value;
+            this.values.put(key, element);
+            this.write(() -> this.setting.put(key, element));
+            this.model.changed(index, index);
+        }
+
+        @Override
+        protected void removeRow(int index) {
+            String key = this.keys().remove(index);
+            this.values.remove(key);
+            this.write(() -> this.setting.remove(key));
+            this.model.removed(index);
+        }
+
+        @Override
+        public void load() {
+            this.keys = null;
+            this.values.clear();
+            super.load();
+        }
+    }
+
+    /**
+     * A collapsible section for a group. Its settings are only built into components the first time it is expanded,
+     * once the panel's {@link GroupLoader} has loaded them if they weren't already.
+     */
+    public static class GroupSettingPanel<S extends DynamicSettings> extends SettingPanel<DynamicSettings.GroupSetting<S>> {
+        private final DynamicSettingsPanel panel;
+        private final JPanel section = new JPanel(new BorderLayout());
+        private final JButton header = new JButton();
+        private DynamicSettingsPanel content;
+        private boolean expanded;
+        private boolean pending;
+
+        public GroupSettingPanel(DynamicSettings.GroupSetting<S> setting, DynamicSettingsPanel panel, int gridy) {
+            super(setting, panel);
+            this.panel = panel;
+            this.header.setBorderPainted(false);
+            this.header.setContentAreaFilled(false);
+            this.header.setHorizontalAlignment(SwingConstants.LEADING);
+            this.header.addActionListener(e -> this.setExpanded(!this.expanded));
+            this.updateHeader();
+            this.section.add(this.header, BorderLayout.NORTH);
+            GridBagConstraints gbc = new GridBagConstraints();
+            gbc.gridx = 0;
+            gbc.gridy = gridy;
+            gbc.gridwidth = GridBagConstraints.REMAINDER;
+            gbc.insets = new Insets(5, 0, 0, 5);
+            gbc.weightx = 1;
+            gbc.fill = GridBagConstraints.HORIZONTAL;
+            panel.add(this.section, gbc);
+        }
+
+        private void updateHeader() {
+            this.header.setText((this.expanded ? "\u25BE " : "\u25B8 ") + this.setting.getName() + (this.pending ? " (loading...)" : ""));
+        }
+
+        public boolean isExpanded() {
+            return this.expanded;
+        }
+
+        public void setExpanded(boolean expanded) {
+            if (this.pending || expanded == this.expanded) return;
+            if (expanded && this.content == null) {
+                GroupLoader loader = this.panel.getGroupLoader();
+                if (!this.setting.isLoaded() && loader != null) {
+                    this.pending = true;
+                    this.updateHeader();
+                    loader.load(this.setting).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                        this.pending = false;
+                        if (error != null) {
+                            LOGGER.log(System.Logger.Level.WARNING, "Failed to load group " + this.setting.getName(), error);
+                            this.updateHeader();
+                            return;
+                        }
+                        this.build();
+                        this.show(true);
+                    }));
+                    return;
+                }
+                this.build();
+            }
+            this.show(expanded);
+        }
+
+        private void build() {
+            this.content = new DynamicSettingsPanel(this.setting.get());
+            this.content.setLiveUpdate(this.panel.isLiveUpdate());
+            this.content.setGroupLoader(this.panel.getGroupLoader());
+            this.content.setBorder(BorderFactory.createEmptyBorder(0, 16, 0, 0));
+            this.section.add(this.content, BorderLayout.CENTER);
+        }
+
+        private void show(boolean expanded) {
+            this.expanded = expanded;
+            if (this.content != null) this.content.setVisible(expanded);
+            this.updateHeader();
+            this.section.revalidate();
+        }
+
+        @Override
+        public void save() {
+            if (this.content != null) this.content.save();
+        }
+
+        @Override
+        public void load() {
+            if (this.content != null) this.content.reload();
+        }
     }
 
 }
@@ -0,0 +1,314 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableCellEditor;
+import javax.swing.table.TableCellRenderer;
+import java.awt.*;
+import java.awt.event.MouseEvent;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A name/value table over every setting. Unlike the form built by {@link DynamicSettingsPanel}, rows share one renderer
+ * and editor per kind, so only the visible rows cost anything and configs with many thousands of settings stay
+ * responsive.
+ * <p>
+ * Groups, lists and maps don't fit in a cell, double-clicking their row opens them in a window of their own. Groups
+ * are loaded through the {@link DynamicSettingsPanel.GroupLoader} first if they need to be, like expanding them in the
+ * form does.
+ */
+@SuppressWarnings("serial")
+public class DynamicSettingsTable extends JTable {
+    private static final System.Logger LOGGER = System.getLogger(DynamicSettingsTable.class.getName());
+
+    private final DynamicSettings settings;
+    private final DynamicSettings.Setting<?>[] rows;
+    private final Map<Integer, Object> pending = new HashMap<>();
+    private final Map<DynamicSettings.Setting<?>, Detail> details = new HashMap<>();
+    private boolean liveUpdate;
+    private DynamicSettingsPanel.GroupLoader groupLoader;
+
+    public DynamicSettingsTable(DynamicSettings settings) {
+        this.settings = settings;
+        this.rows = settings.getSettings().toArray(new DynamicSettings.Setting<?>[0]);
+        this.setModel(new Model());
+        this.setFillsViewportHeight(true);
+        this.setSurrendersFocusOnKeystroke(true);
+        this.putClientProperty("terminateEditOnFocusLost", true);
+        this.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = DynamicSettingsTable.this.rowAtPoint(e.getPoint());
+                if (e.getClickCount() == 2 && row != -1) DynamicSettingsTable.this.openDetail(row);
+            }
+        });
+    }
+
+    public boolean isLiveUpdate() {
+        return this.liveUpdate;
+    }
+
+    /**
+     * when enabled, every edit is written to its setting right away, otherwise edits are kept until {@link #save()}
+     */
+    public void setLiveUpdate(boolean liveUpdate) {
+        this.liveUpdate = liveUpdate;
+        for (Detail detail : this.details.values()) {
+            if (detail.group != null) detail.group.setLiveUpdate(liveUpdate);
+            if (detail.collection != null) detail.collection.setLiveUpdate(liveUpdate);
+        }
+    }
+
+    public DynamicSettingsPanel.GroupLoader getGroupLoader() {
+        return this.groupLoader;
+    }
+
+    /**
+     * sets what loads groups that aren't {@link DynamicSettings.GroupSetting#isLoaded() loaded} yet when their row is
+     * opened
+     */
+    public void setGroupLoader(DynamicSettingsPanel.GroupLoader groupLoader) {
+        this.groupLoader = groupLoader;
+        for (Detail detail : this.details.values()) {
+            if (detail.group != null) detail.group.setGroupLoader(groupLoader);
+        }
+    }
+
+    private static boolean isNested(DynamicSettings.Setting<?> setting) {
+        return setting instanceof DynamicSettings.ListSetting || setting instanceof DynamicSettings.MapSetting || setting instanceof DynamicSettings.GroupSetting;
+    }
+
+    /**
+     * opens the group, list or map in the row in a window of its own, loading the group first if it needs to be
+     */
+    public void openDetail(int row) {
+        DynamicSettings.Setting<?> setting = this.getSetting(row);
+        if (!isNested(setting) || !setting.isEnabled()) return;
+        Detail open = this.details.get(setting);
+        if (open != null) {
+            open.dialog.setVisible(true);
+            open.dialog.toFront();
+            return;
+        }
+        DynamicSettingsPanel.GroupLoader loader = this.groupLoader;
+        if (setting instanceof DynamicSettings.GroupSetting<?> group && !group.isLoaded() && loader != null) {
+            loader.load(group).whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+                if (error != null) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Failed to load group " + group.getName(), error);
+                    UIManager.getLookAndFeel().provideErrorFeedback(this);
+                    return;
+                }
+                // opened again while it was loading
+                if (!this.details.containsKey(setting)) this.showDetail(setting);
+            }));
+            return;
+        }
+        this.showDetail(setting);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void showDetail(DynamicSettings.Setting<?> setting) {
+        JDialog dialog = new JDialog(SwingUtilities.getWindowAncestor(this), setting.getName());
+        dialog.setDefaultCloseOperation(WindowConstants.HIDE_ON_CLOSE);
+        Detail detail;
+        if (setting instanceof DynamicSettings.GroupSetting<?> group) {
+            DynamicSettingsPanel panel = new DynamicSettingsPanel(group.get());
+            panel.setLiveUpdate(this.liveUpdate);
+            panel.setGroupLoader(this.groupLoader);
+            dialog.add(panel.getView() == DynamicSettingsPanel.View.TABLE ? panel : new JScrollPane(panel));
+            detail = new Detail(dialog, panel, null);
+        } else {
+            JPanel panel = new JPanel(new GridBagLayout());
+            DynamicSettingsPanel.CollectionSettingPanel<?> collection;
+            if (setting instanceof DynamicSettings.ListSetting list) {
+                collection = new DynamicSettingsPanel.ListSettingPanel<>(list, panel, 0);
+            } else {
+                collection = new DynamicSettingsPanel.MapSettingPanel<>((DynamicSettings.MapSetting) setting, panel, 0);
+            }
+            collection.setLiveUpdate(this.liveUpdate);
+            dialog.add(new JScrollPane(panel));
+            detail = new Detail(dialog, null, collection);
+        }
+        dialog.addComponentListener(new java.awt.event.ComponentAdapter() {
+            @Override
+            public void componentHidden(java.awt.event.ComponentEvent e) {
+                DynamicSettingsTable.this.repaint();
+            }
+        });
+        this.details.put(setting, detail);
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+
+    @Override
+    public void removeNotify() {
+        super.removeNotify();
+        for (Detail detail : this.details.values()) {
+            detail.dialog.dispose();
+        }
+        this.details.clear();
+    }
+
+    /**
+     * writes the pending edits, including those in open groups, lists and maps, as one update
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void save() {
+        if (this.isEditing()) this.getCellEditor().stopCellEditing();
+        if (this.pending.isEmpty() && this.details.isEmpty()) return;
+        this.settings.beginWrite();
+        try {
+            for (Map.Entry<Integer, Object> entry : this.pending.entrySet()) {
+                ((DynamicSettings.Setting) this.rows[entry.getKey()]).set(entry.getValue());
+            }
+            for (Detail detail : this.details.values()) {
+                if (detail.group != null) detail.group.save();
+                if (detail.collection != null) detail.collection.save();
+            }
+        } finally {
+            this.settings.endWrite();
+        }
+        this.pending.clear();
+    }
+
+    /**
+     * drops pending edits and shows the current setting values
+     */
+    public void reload() {
+        if (this.isEditing()) this.getCellEditor().cancelCellEditing();
+        this.pending.clear();
+        for (Detail detail : this.details.values()) {
+            if (detail.group != null) detail.group.reload();
+            if (detail.collection != null) detail.collection.load();
+        }
+        ((AbstractTableModel) this.getModel()).fireTableDataChanged();
+    }
+
+    public DynamicSettings.Setting<?> getSetting(int row) {
+        return this.rows[this.convertRowIndexToModel(row)];
+    }
+
+    @Override
+    public TableCellRenderer getCellRenderer(int row, int column) {
+        if (column == 1) {
+            Class<?> type = this.getSetting(row).type;
+            if (type == Boolean.class) return this.getDefaultRenderer(Boolean.class);
+            if (Number.class.isAssignableFrom(type)) return this.getDefaultRenderer(Number.class);
+        }
+        return super.getCellRenderer(row, column);
+    }
+
+    /**
+     * greys out disabled settings and shows the names of invalid ones in red
+     */
+    @Override
+    public Component prepareRenderer(TableCellRenderer renderer, int row, int column) {
+        Component component = super.prepareRenderer(renderer, row, column);
+        DynamicSettings.Setting<?> setting = this.getSetting(row);
+        component.setEnabled(setting.isEnabled());
+        if (column == 0 && !this.isRowSelected(row) && setting.getViolation() != null) component.setForeground(Color.RED);
+        return component;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        int row = this.rowAtPoint(event.getPoint());
+        if (row == -1) return null;
+        DynamicSettings.Setting<?> setting = this.getSetting(row);
+        if (setting.getViolation() != null) return setting.getViolation();
+        return isNested(setting) ? "Double-click to open" : null;
+    }
+
+    @Override
+    public TableCellEditor getCellEditor(int row, int column) {
+        DynamicSettings.Setting<?> setting = this.getSetting(row);
+        if (setting.type == Boolean.class) return this.getDefaultEditor(Boolean.class);
+        // editors are only created for the cell being edited, so these aren't worth caching
+        if (setting instanceof DynamicSettings.EnumSetting<?> e) return new DefaultCellEditor(new JComboBox<>(e.getConstants()));
+        if (setting instanceof DynamicSettings.ChoiceSetting c) return new DefaultCellEditor(new JComboBox<>(c.getNames()));
+        return this.getDefaultEditor(Object.class);
+    }
+
+    /**
+     * turns the text from the default editor into the setting's type, checking bounds so that a bad edit can be
+     * rejected before it is saved
+     */
+    private static Object convert(DynamicSettings.Setting<?> setting, Object value) {
+        if (!(value instanceof String text)) return value;
+        Object parsed = DynamicSettingsPanel.parse(setting.type, text);
+        if (setting instanceof DynamicSettings.BoundedIntSetting b) {
+            int i = (Integer) parsed;
+            if (i < b.getMin() || i > b.getMax()) throw new IllegalArgumentException("Value out of bounds: " + text);
+        }
+        if (setting instanceof DynamicSettings.BoundedDoubleSetting b) {
+            double d = (Double) parsed;
+            if (d < b.getMin() || d > b.getMax()) throw new IllegalArgumentException("Value out of bounds: " + text);
+        }
+        return parsed;
+    }
+
+    @SuppressWarnings("serial")
+    private class Model extends AbstractTableModel {
+
+        @Override
+        public int getRowCount() {
+            return DynamicSettingsTable.this.rows.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 2;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "Name" : "Value";
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            if (column == 0) return false;
+            DynamicSettings.Setting<?> setting = DynamicSettingsTable.this.rows[row];
+            return setting.isEnabled() && !isNested(setting);
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            DynamicSettings.Setting<?> setting = DynamicSettingsTable.this.rows[row];
+            if (column == 0) return setting.getName();
+            if (setting instanceof DynamicSettings.GroupSetting<?> group) return group.get().getSettings().size() + " settings";
+            // copying a whole collection on every repaint would cost as much as the form this table replaces
+            if (setting instanceof DynamicSettings.ListSetting<?, ?> list) return list.size() + " items";
+            if (setting instanceof DynamicSettings.MapSetting<?, ?> map) return map.size() + " items";
+            Object pending = DynamicSettingsTable.this.pending.get(row);
+            return pending != null ? pending : setting.capture();
+        }
+
+        @Override
+        @SuppressWarnings({"rawtypes", "unchecked"})
+        public void setValueAt(Object value, int row, int column) {
+            DynamicSettings.Setting setting = DynamicSettingsTable.this.rows[row];
+            try {
+                value = convert(setting, value);
+                if (DynamicSettingsTable.this.liveUpdate) {
+                    setting.set(value);
+                } else {
+                    DynamicSettingsTable.this.pending.put(row, value);
+                }
+            } catch (IllegalArgumentException e) {
+                UIManager.getLookAndFeel().provideErrorFeedback(DynamicSettingsTable.this);
+                return;
+            }
+            this.fireTableCellUpdated(row, column);
+        }
+    }
+
+    /**
+     * an open group, list or map, with the panel editing it so that saving or reloading the table reaches it
+     */
+    private record Detail(JDialog dialog, DynamicSettingsPanel group, DynamicSettingsPanel.CollectionSettingPanel<?> collection) {
+    }
+
+}
@@ -0,0 +1,111 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Settings rebuilt from the schema written by {@link DynamicSettings#describe}, so a process can show and edit a
+ * config without having the class that declared it. Values serialize the same way as the original's, so the two can
+ * exchange changes.
+ */
+public class SchemaSettings extends DynamicSettings {
+    static final byte BOOLEAN = 0;
+    static final byte NUMBER = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte BOUNDED_INT = 6;
+    static final byte BOUNDED_DOUBLE = 7;
+    static final byte STRING = 8;
+    static final byte CHAR = 9;
+    static final byte CHOICE = 10;
+    static final byte LIST = 11;
+    static final byte MAP = 12;
+    static final byte GROUP = 13;
+
+    public SchemaSettings(DataInput in) throws IOException {
+        this(readSchema(in));
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private SchemaSettings(Map<String, BiFunction<String, Object, Setting<?>>> schema) {
+        for (Map.Entry<String, BiFunction<String, Object, Setting<?>>> entry : schema.entrySet()) {
+            this.register(entry.getKey(), (Setting) entry.getValue().apply(entry.getKey(), null));
+        }
+    }
+
+    private static Map<String, BiFunction<String, Object, Setting<?>>> readSchema(DataInput in) throws IOException {
+        int count = in.readInt();
+        Map<String, BiFunction<String, Object, Setting<?>>> schema = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            schema.put(name, readKind(in));
+        }
+        return schema;
+    }
+
+    static void writeChoices(DataOutput out, String[] names) throws IOException {
+        out.writeByte(CHOICE);
+        out.writeInt(names.length);
+        for (String name : names) {
+            out.writeUTF(name);
+        }
+    }
+
+    /**
+     * @return a constructor taking the setting's name and initial value, or null for the kind's default
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static BiFunction<String, Object, Setting<?>> readKind(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        return switch (kind) {
+            case BOOLEAN -> (name, value) -> new BooleanSetting(name, value != null ? (Boolean) value : false);
+            case NUMBER -> {
+                NumberKind numberKind = NumberKind.values()[in.readByte()];
+                yield (name, value) -> new PrimitiveSetting<>(name, value != null ? (Number) value : numberKind.parse("0"));
+            }
+            case INT -> (name, value) -> new IntSetting(name, value != null ? (Integer) value : 0);
+            case LONG -> (name, value) -> new LongSetting(name, value != null ? (Long) value : 0L);
+            case FLOAT -> (name, value) -> new FloatSetting(name, value != null ? (Float) value : 0F);
+            case DOUBLE -> (name, value) -> new DoubleSetting(name, value != null ? (Double) value : 0D);
+            case BOUNDED_INT -> {
+                int min = in.readInt();
+                int max = in.readInt();
+                yield (name, value) -> new BoundedIntSetting(name, value != null ? (Integer) value : min, min, max);
+            }
+            case BOUNDED_DOUBLE -> {
+                double min = in.readDouble();
+                double max = in.readDouble();
+                yield (name, value) -> new BoundedDoubleSetting(name, value != null ? (Double) value : min, min, max);
+            }
+            case STRING -> (name, value) -> new StringSetting(name, value != null ? (String) value : "");
+            case CHAR -> (name, value) -> new CharSetting(name, value != null ? (Character) value : ' ');
+            case CHOICE -> {
+                String[] names = new String[in.readInt()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = in.readUTF();
+                }
+                yield (name, value) -> new ChoiceSetting(name, value != null ? (String) value : names[0], names);
+            }
+            case LIST -> {
+                BiFunction<String, Object, Setting<?>> element = readKind(in);
+                yield (name, value) -> new ListSetting<>(name, v -> (Setting) element.apply("", v));
+            }
+            case MAP -> {
+                BiFunction<String, Object, Setting<?>> element = readKind(in);
+                yield (name, value) -> new MapSetting<>(name, Map.of(), v -> (Setting) element.apply("", v));
+            }
+            case GROUP -> {
+                Map<String, BiFunction<String, Object, Setting<?>>> schema = readSchema(in);
+                yield (name, value) -> new GroupSetting<>(name, new SchemaSettings(schema));
+            }
+            default -> throw new IOException("Unknown setting kind: " + kind);
+        };
+    }
+
+}
@@ -0,0 +1,22 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import java.util.List;
+
+/**
+ * thrown by {@link DynamicSettings#update} when an update would break a {@link Constraint}, after rolling it back
+ */
+public class ValidationException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<String> violations;
+
+    public ValidationException(List<String> violations) {
+        super(String.join("; ", violations));
+        this.violations = List.copyOf(violations);
+    }
+
+    public List<String> getViolations() {
+        return this.violations;
+    }
+
+}
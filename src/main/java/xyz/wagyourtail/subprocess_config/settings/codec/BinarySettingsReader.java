@@ -0,0 +1,260 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import static xyz.wagyourtail.subprocess_config.settings.codec.BinarySettingsWriter.*;
+
+public class BinarySettingsReader implements SettingsReader {
+    private final DataInputStream in;
+    private final Map<Integer, String[]> schemas = new HashMap<>();
+    private final Deque<Container> stack = new ArrayDeque<>();
+    private int peeked = -1;
+
+    public BinarySettingsReader(InputStream in) {
+        this.in = in instanceof DataInputStream d ? d : new DataInputStream(in);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("VarInt too long");
+    }
+
+    private String readRawString() throws IOException {
+        byte[] bytes = new byte[readVarInt(this.in)];
+        this.in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private byte readTag() throws IOException {
+        Container top = this.stack.peek();
+        if (top != null) top.pending = false;
+        if (this.peeked != -1) {
+            byte tag = (byte) this.peeked;
+            this.peeked = -1;
+            return tag;
+        }
+        return this.in.readByte();
+    }
+
+    private void expect(byte tag, byte expected) throws IOException {
+        if (tag != expected) throw new IOException("Expected tag " + expected + " but found " + tag);
+    }
+
+    private String[] readSchema() throws IOException {
+        int id = readVarInt(this.in);
+        if ((id & 1) == 0) {
+            String[] names = this.schemas.get(id >>> 1);
+            if (names == null) throw new IOException("Unknown schema " + (id >>> 1) + ", its names were never read");
+            return names;
+        }
+        String[] names = new String[readVarInt(this.in)];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = this.readRawString().intern();
+        }
+        // replaces the one the writer had under this id before it was reset
+        this.schemas.put(id >>> 1, names);
+        return names;
+    }
+
+    @Override
+    public void beginSettings() throws IOException {
+        this.expect(this.readTag(), SETTINGS);
+        this.stack.push(new Container(this.readSchema(), 0, false));
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        Container top = this.stack.element();
+        if (!this.hasNext()) throw new IOException("No more settings");
+        String name = top.names[top.index - 1];
+        top.index = -1;
+        return name;
+    }
+
+    @Override
+    public void endSettings() throws IOException {
+        if (this.hasNext()) throw new IOException("Unread settings remaining");
+        this.stack.pop();
+    }
+
+    @Override
+    public void beginList() throws IOException {
+        this.expect(this.readTag(), LIST);
+        this.stack.push(new Container(null, readVarInt(this.in), false));
+    }
+
+    @Override
+    public void endList() throws IOException {
+        Container top = this.stack.pop();
+        if (top.remaining != 0 || top.pending) throw new IOException("Unread list elements remaining");
+    }
+
+    @Override
+    public void beginMap() throws IOException {
+        this.expect(this.readTag(), MAP);
+        this.stack.push(new Container(null, readVarInt(this.in), true));
+    }
+
+    @Override
+    public String nextKey() throws IOException {
+        if (!this.hasNext()) throw new IOException("No more map entries");
+        this.stack.element().remaining--;
+        return this.readRawString();
+    }
+
+    @Override
+    public void endMap() throws IOException {
+        if (this.stack.pop().remaining != 0) throw new IOException("Unread map entries remaining");
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        Container top = this.stack.element();
+        if (top.names != null) {
+            if (top.index == -1) top.index = readVarInt(this.in);
+            return top.index != 0;
+        }
+        if (top.map) return top.remaining > 0;
+        if (top.pending) return true;
+        if (top.remaining == 0) return false;
+        top.remaining--;
+        top.pending = true;
+        return true;
+    }
+
+    @Override
+    public boolean peekMap() throws IOException {
+        if (this.peeked == -1) this.peeked = this.in.readUnsignedByte();
+        return this.peeked == MAP;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        this.expect(this.readTag(), BOOLEAN);
+        return this.in.readBoolean();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        long value = this.readLong();
+        if (value != (int) value) throw new IOException("Expected int but found " + value);
+        return (int) value;
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        byte tag = this.readTag();
+        return switch (tag) {
+            case INT -> this.in.readInt();
+            case LONG -> this.in.readLong();
+            default -> throw new IOException("Expected integer but found tag " + tag);
+        };
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return (float) this.readDouble();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        byte tag = this.readTag();
+        return switch (tag) {
+            case INT -> this.in.readInt();
+            case LONG -> this.in.readLong();
+            case FLOAT -> this.in.readFloat();
+            case DOUBLE -> this.in.readDouble();
+            default -> throw new IOException("Expected number but found tag " + tag);
+        };
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        this.expect(this.readTag(), CHAR);
+        return this.in.readChar();
+    }
+
+    @Override
+    public String readString() throws IOException {
+        byte tag = this.readTag();
+        if (tag == NULL) return null;
+        this.expect(tag, STRING);
+        return this.readRawString();
+    }
+
+    @Override
+    public int readEnum(String[] names) throws IOException {
+        this.expect(this.readTag(), ENUM);
+        int ordinal = readVarInt(this.in);
+        if (ordinal >= names.length) throw new IOException("Unknown enum ordinal: " + ordinal);
+        return ordinal;
+    }
+
+    @Override
+    public void abandon() {
+        this.stack.clear();
+        this.peeked = -1;
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        this.skip(this.readTag());
+    }
+
+    private void skip(byte tag) throws IOException {
+        switch (tag) {
+            case NULL -> {}
+            case BOOLEAN -> this.in.skipNBytes(1);
+            case CHAR -> this.in.skipNBytes(2);
+            case INT, FLOAT -> this.in.skipNBytes(4);
+            case LONG, DOUBLE -> this.in.skipNBytes(8);
+            case STRING -> this.in.skipNBytes(readVarInt(this.in));
+            case ENUM -> readVarInt(this.in);
+            case LIST -> {
+                for (int i = readVarInt(this.in); i > 0; i--) {
+                    this.skip(this.in.readByte());
+                }
+            }
+            case MAP -> {
+                for (int i = readVarInt(this.in); i > 0; i--) {
+                    this.in.skipNBytes(readVarInt(this.in));
+                    this.skip(this.in.readByte());
+                }
+            }
+            case SETTINGS -> {
+                this.readSchema();
+                while (readVarInt(this.in) != 0) {
+                    this.skip(this.in.readByte());
+                }
+            }
+            default -> throw new IOException("Unknown tag: " + tag);
+        }
+    }
+
+    private static class Container {
+        private final String[] names;
+        private final boolean map;
+        private int remaining;
+        private boolean pending;
+        private int index = -1;
+
+        private Container(String[] names, int remaining, boolean map) {
+            this.names = names;
+            this.remaining = remaining;
+            this.map = map;
+        }
+    }
+
+}
@@ -0,0 +1,167 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Compact tagged binary format. Numbers are written raw, enums as ordinals, strings and collections are length
+ * prefixed, and the setting names of each schema are only written the first time that schema is seen, or again after
+ * a {@link #reset()}. A schema id carries a flag saying whether its names follow, so a reader that missed them fails
+ * on the id instead of misreading what comes after it.
+ */
+public class BinarySettingsWriter implements SettingsWriter {
+    static final byte NULL = 0;
+    static final byte BOOLEAN = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte FLOAT = 4;
+    static final byte DOUBLE = 5;
+    static final byte CHAR = 6;
+    static final byte STRING = 7;
+    static final byte ENUM = 8;
+    static final byte LIST = 9;
+    static final byte MAP = 10;
+    static final byte SETTINGS = 11;
+
+    private final DataOutputStream out;
+    private final Map<String[], Integer> schemas = new WeakHashMap<>();
+    private int nextSchema;
+
+    public BinarySettingsWriter(OutputStream out) {
+        this.out = out instanceof DataOutputStream d ? d : new DataOutputStream(out);
+    }
+
+    static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private void writeRawString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(this.out, bytes.length);
+        this.out.write(bytes);
+    }
+
+    @Override
+    public void beginSettings(String[] names) throws IOException {
+        this.out.writeByte(SETTINGS);
+        Integer schema = this.schemas.get(names);
+        if (schema != null) {
+            writeVarInt(this.out, schema << 1);
+            return;
+        }
+        schema = this.nextSchema++;
+        this.schemas.put(names, schema);
+        writeVarInt(this.out, schema << 1 | 1);
+        writeVarInt(this.out, names.length);
+        for (String name : names) {
+            this.writeRawString(name);
+        }
+    }
+
+    @Override
+    public void reset() {
+        this.schemas.clear();
+        this.nextSchema = 0;
+    }
+
+    @Override
+    public void name(int index) throws IOException {
+        writeVarInt(this.out, index + 1);
+    }
+
+    @Override
+    public void endSettings() throws IOException {
+        writeVarInt(this.out, 0);
+    }
+
+    @Override
+    public void beginList(int size) throws IOException {
+        this.out.writeByte(LIST);
+        writeVarInt(this.out, size);
+    }
+
+    @Override
+    public void endList() {
+    }
+
+    @Override
+    public void beginMap(int size) throws IOException {
+        this.out.writeByte(MAP);
+        writeVarInt(this.out, size);
+    }
+
+    @Override
+    public void key(String key) throws IOException {
+        this.writeRawString(key);
+    }
+
+    @Override
+    public void endMap() {
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        this.out.writeByte(BOOLEAN);
+        this.out.writeBoolean(value);
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        this.out.writeByte(INT);
+        this.out.writeInt(value);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        this.out.writeByte(LONG);
+        this.out.writeLong(value);
+    }
+
+    @Override
+    public void writeFloat(float value) throws IOException {
+        this.out.writeByte(FLOAT);
+        this.out.writeFloat(value);
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        this.out.writeByte(DOUBLE);
+        this.out.writeDouble(value);
+    }
+
+    @Override
+    public void writeChar(char value) throws IOException {
+        this.out.writeByte(CHAR);
+        this.out.writeChar(value);
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        if (value == null) {
+            this.out.writeByte(NULL);
+            return;
+        }
+        this.out.writeByte(STRING);
+        this.writeRawString(value);
+    }
+
+    @Override
+    public void writeEnum(int ordinal, String name) throws IOException {
+        this.out.writeByte(ENUM);
+        writeVarInt(this.out, ordinal);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+}
@@ -0,0 +1,67 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The generated {@link SettingsClassCodec}s, listed as services by the codec processor and loaded the first time one
+ * is looked up.
+ */
+public final class ClassCodecs {
+    private static final System.Logger LOGGER = System.getLogger(ClassCodecs.class.getName());
+
+    private ClassCodecs() {
+    }
+
+    /**
+     * @return the generated codec for exactly this class, or null if it has none
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends DynamicSettings> SettingsClassCodec<T> get(Class<T> type) {
+        SettingsClassCodec<?> codec = Holder.CODECS.get(type.getName());
+        // a class of the same name from another class loader is a different class
+        return codec != null && codec.type() == type ? (SettingsClassCodec<T>) codec : null;
+    }
+
+    /**
+     * @return the generated codec for the named class, or null if it has none
+     */
+    public static SettingsClassCodec<?> forName(String className) {
+        return Holder.CODECS.get(className);
+    }
+
+    /**
+     * skips the value of a setting the class doesn't have, for generated codecs
+     */
+    public static void skipUnknown(SettingsReader reader, String name) throws IOException {
+        LOGGER.log(System.Logger.Level.WARNING, "Unknown setting: {0}", name);
+        reader.skipValue();
+    }
+
+    private static final class Holder {
+        private static final Map<String, SettingsClassCodec<?>> CODECS = load();
+
+        @SuppressWarnings("rawtypes")
+        private static Map<String, SettingsClassCodec<?>> load() {
+            Map<String, SettingsClassCodec<?>> codecs = new HashMap<>();
+            Iterator<SettingsClassCodec> iterator = ServiceLoader.load(SettingsClassCodec.class).iterator();
+            while (true) {
+                try {
+                    if (!iterator.hasNext()) break;
+                    SettingsClassCodec<?> codec = iterator.next();
+                    codecs.put(codec.type().getName(), codec);
+                } catch (ServiceConfigurationError e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Skipping a settings codec that failed to load", e);
+                }
+            }
+            return codecs;
+        }
+    }
+
+}
@@ -0,0 +1,22 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Asks the codec processor to generate a {@link SettingsClassCodec} for a settings class, which reads and writes its
+ * fields directly instead of going through the registered settings one by one. The class must extend
+ * {@link xyz.wagyourtail.subprocess_config.settings.DynamicSettings} directly and register every setting in a final,
+ * non-private field initializer such as {@code register("name", 0)}, with the name as a string literal.
+ * <p>
+ * Fields declared as one of the built-in primitive, string or char settings are written with that setting's own
+ * encoding, so declare a field as {@code Setting<...>} if it holds a subclass that serializes differently. When the
+ * settings registered at runtime don't match the fields, such as when more are registered in the constructor, the
+ * generated codec is simply not used.
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface GenerateCodec {
+}
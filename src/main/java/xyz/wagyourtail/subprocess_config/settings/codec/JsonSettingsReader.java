@@ -0,0 +1,153 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+public class JsonSettingsReader implements SettingsReader {
+    private final InputStream in;
+    private JsonReader reader;
+    private int depth;
+
+    public JsonSettingsReader(JsonReader reader) {
+        this.in = null;
+        this.reader = reader;
+    }
+
+    /**
+     * reads each top level settings object with a fresh {@link JsonReader}, so the stream can be swapped out from
+     * under this reader between values (such as when it is fed one frame at a time).
+     */
+    public JsonSettingsReader(InputStream in) {
+        this.in = in;
+    }
+
+    private JsonReader reader() {
+        if (this.depth == 0 && this.in != null) {
+            this.reader = new JsonReader(new InputStreamReader(this.in, StandardCharsets.UTF_8));
+            this.reader.setStrictness(Strictness.LENIENT);
+        }
+        return this.reader;
+    }
+
+    @Override
+    public void abandon() {
+        if (this.in != null) this.depth = 0;
+    }
+
+    @Override
+    public void beginSettings() throws IOException {
+        this.reader().beginObject();
+        this.depth++;
+    }
+
+    @Override
+    public String nextName() throws IOException {
+        return this.reader.nextName();
+    }
+
+    @Override
+    public void endSettings() throws IOException {
+        this.reader.endObject();
+        this.depth--;
+    }
+
+    @Override
+    public void beginList() throws IOException {
+        this.reader().beginArray();
+        this.depth++;
+    }
+
+    @Override
+    public void endList() throws IOException {
+        this.reader.endArray();
+        this.depth--;
+    }
+
+    @Override
+    public void beginMap() throws IOException {
+        this.reader().beginObject();
+        this.depth++;
+    }
+
+    @Override
+    public String nextKey() throws IOException {
+        return this.reader.nextName();
+    }
+
+    @Override
+    public void endMap() throws IOException {
+        this.reader.endObject();
+        this.depth--;
+    }
+
+    @Override
+    public boolean hasNext() throws IOException {
+        return this.reader.hasNext();
+    }
+
+    @Override
+    public boolean peekMap() throws IOException {
+        return this.reader.peek() == JsonToken.BEGIN_OBJECT;
+    }
+
+    @Override
+    public boolean readBoolean() throws IOException {
+        return this.reader().nextBoolean();
+    }
+
+    @Override
+    public int readInt() throws IOException {
+        return this.reader().nextInt();
+    }
+
+    @Override
+    public long readLong() throws IOException {
+        return this.reader().nextLong();
+    }
+
+    @Override
+    public float readFloat() throws IOException {
+        return (float) this.reader().nextDouble();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+        return this.reader().nextDouble();
+    }
+
+    @Override
+    public char readChar() throws IOException {
+        return this.reader().nextString().charAt(0);
+    }
+
+    @Override
+    public String readString() throws IOException {
+        JsonReader reader = this.reader();
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    @Override
+    public int readEnum(String[] names) throws IOException {
+        String name = this.reader().nextString();
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        throw new IOException("Unknown enum constant: " + name);
+    }
+
+    @Override
+    public void skipValue() throws IOException {
+        this.reader().skipValue();
+    }
+
+}
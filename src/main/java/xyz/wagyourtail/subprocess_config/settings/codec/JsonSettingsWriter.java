@@ -0,0 +1,113 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+public class JsonSettingsWriter implements SettingsWriter {
+    private final JsonWriter writer;
+    private final Deque<String[]> names = new ArrayDeque<>();
+
+    public JsonSettingsWriter(JsonWriter writer) {
+        this.writer = writer;
+    }
+
+    public JsonSettingsWriter(OutputStream out) {
+        this.writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.writer.setStrictness(Strictness.LENIENT);
+    }
+
+    @Override
+    public void beginSettings(String[] names) throws IOException {
+        this.names.push(names);
+        this.writer.beginObject();
+    }
+
+    @Override
+    public void name(int index) throws IOException {
+        this.writer.name(this.names.element()[index]);
+    }
+
+    @Override
+    public void endSettings() throws IOException {
+        this.names.pop();
+        this.writer.endObject();
+    }
+
+    @Override
+    public void beginList(int size) throws IOException {
+        this.writer.beginArray();
+    }
+
+    @Override
+    public void endList() throws IOException {
+        this.writer.endArray();
+    }
+
+    @Override
+    public void beginMap(int size) throws IOException {
+        this.writer.beginObject();
+    }
+
+    @Override
+    public void key(String key) throws IOException {
+        this.writer.name(key);
+    }
+
+    @Override
+    public void endMap() throws IOException {
+        this.writer.endObject();
+    }
+
+    @Override
+    public void writeBoolean(boolean value) throws IOException {
+        this.writer.value(value);
+    }
+
+    @Override
+    public void writeInt(int value) throws IOException {
+        this.writer.value(value);
+    }
+
+    @Override
+    public void writeLong(long value) throws IOException {
+        this.writer.value(value);
+    }
+
+    @Override
+    public void writeFloat(float value) throws IOException {
+        this.writer.value(value);
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        this.writer.value(value);
+    }
+
+    @Override
+    public void writeChar(char value) throws IOException {
+        this.writer.value(String.valueOf(value));
+    }
+
+    @Override
+    public void writeString(String value) throws IOException {
+        this.writer.value(value);
+    }
+
+    @Override
+    public void writeEnum(int ordinal, String name) throws IOException {
+        this.writer.value(name);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        this.writer.flush();
+    }
+
+}
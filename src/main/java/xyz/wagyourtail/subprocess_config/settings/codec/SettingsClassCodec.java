@@ -0,0 +1,36 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes one settings class field by field, generated for classes annotated with {@link GenerateCodec} and
+ * found through {@link ClassCodecs}. The output is the same as {@link DynamicSettings#serializeChanges}'s, so either
+ * end of a channel can use a generated codec or not.
+ * <p>
+ * Both methods are called from inside the settings' write section.
+ */
+public interface SettingsClassCodec<T extends DynamicSettings> {
+
+    Class<T> type();
+
+    /**
+     * @return the setting names in registration order, must not be modified
+     */
+    String[] names();
+
+    /**
+     * @throws UnsupportedOperationException if the class has no accessible no argument constructor
+     */
+    T create();
+
+    /**
+     * writes the settings modified after {@code since}, leaving out groups if {@code outline} is set or they aren't
+     * loaded
+     */
+    void serialize(T settings, SettingsWriter writer, long since, boolean outline) throws IOException;
+
+    void deserialize(T settings, SettingsReader reader) throws IOException;
+
+}
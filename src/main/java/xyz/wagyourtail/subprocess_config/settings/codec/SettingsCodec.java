@@ -0,0 +1,77 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+public interface SettingsCodec {
+
+    SettingsCodec JSON = new SettingsCodec() {
+        @Override
+        public String getName() {
+            return "json";
+        }
+
+        @Override
+        public SettingsWriter writer(OutputStream out) {
+            return new JsonSettingsWriter(out);
+        }
+
+        @Override
+        public SettingsReader reader(InputStream in) {
+            return new JsonSettingsReader(in);
+        }
+    };
+
+    SettingsCodec BINARY = new SettingsCodec() {
+        @Override
+        public String getName() {
+            return "binary";
+        }
+
+        @Override
+        public SettingsWriter writer(OutputStream out) {
+            return new BinarySettingsWriter(out);
+        }
+
+        @Override
+        public SettingsReader reader(InputStream in) {
+            return new BinarySettingsReader(in);
+        }
+    };
+
+    static SettingsCodec byName(String name) {
+        return switch (name) {
+            case "json" -> JSON;
+            case "binary" -> BINARY;
+            default -> throw new IllegalArgumentException("Unknown codec: " + name);
+        };
+    }
+
+    String getName();
+
+    /**
+     * writers and readers may keep state between values (such as which setting names were already sent), so a
+     * channel should keep using the same instance for its whole lifetime.
+     */
+    SettingsWriter writer(OutputStream out);
+
+    SettingsReader reader(InputStream in);
+
+    default byte[] encode(DynamicSettings settings) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = this.writer(out);
+        settings.serialize(writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    default void decode(DynamicSettings settings, byte[] data) throws IOException {
+        settings.deserialize(this.reader(new ByteArrayInputStream(data)));
+    }
+
+}
@@ -0,0 +1,61 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import java.io.IOException;
+
+public interface SettingsReader {
+
+    void beginSettings() throws IOException;
+
+    String nextName() throws IOException;
+
+    void endSettings() throws IOException;
+
+    void beginList() throws IOException;
+
+    void endList() throws IOException;
+
+    void beginMap() throws IOException;
+
+    String nextKey() throws IOException;
+
+    void endMap() throws IOException;
+
+    /**
+     * whether the current settings object, list or map has another entry
+     */
+    boolean hasNext() throws IOException;
+
+    /**
+     * whether the next value is a map, without reading it. Only valid inside a settings object.
+     */
+    boolean peekMap() throws IOException;
+
+    boolean readBoolean() throws IOException;
+
+    int readInt() throws IOException;
+
+    long readLong() throws IOException;
+
+    float readFloat() throws IOException;
+
+    double readDouble() throws IOException;
+
+    char readChar() throws IOException;
+
+    String readString() throws IOException;
+
+    /**
+     * @return the ordinal of the enum constant read, looked up in {@code names} if the codec stores constants by name
+     */
+    int readEnum(String[] names) throws IOException;
+
+    void skipValue() throws IOException;
+
+    /**
+     * drops what's left of a value that was only partly read, such as after an error, so the next one starts clean.
+     * Names learned from earlier values are kept.
+     */
+    default void abandon() {
+    }
+
+}
@@ -0,0 +1,50 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+public interface SettingsWriter extends Flushable {
+
+    /**
+     * starts a {@link xyz.wagyourtail.subprocess_config.settings.DynamicSettings} object, entries are then written by
+     * their index into {@code names}, so codecs that can are free to only send the names once.
+     */
+    void beginSettings(String[] names) throws IOException;
+
+    void name(int index) throws IOException;
+
+    void endSettings() throws IOException;
+
+    void beginList(int size) throws IOException;
+
+    void endList() throws IOException;
+
+    void beginMap(int size) throws IOException;
+
+    void key(String key) throws IOException;
+
+    void endMap() throws IOException;
+
+    void writeBoolean(boolean value) throws IOException;
+
+    void writeInt(int value) throws IOException;
+
+    void writeLong(long value) throws IOException;
+
+    void writeFloat(float value) throws IOException;
+
+    void writeDouble(double value) throws IOException;
+
+    void writeChar(char value) throws IOException;
+
+    void writeString(String value) throws IOException;
+
+    void writeEnum(int ordinal, String name) throws IOException;
+
+    /**
+     * forgets the names sent so far, so what's written next can be read by a reader that missed them
+     */
+    default void reset() {
+    }
+
+}
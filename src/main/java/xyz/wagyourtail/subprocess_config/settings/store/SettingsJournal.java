@@ -0,0 +1,258 @@
+package xyz.wagyourtail.subprocess_config.settings.store;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.JsonSettingsReader;
+import xyz.wagyourtail.subprocess_config.settings.codec.JsonSettingsWriter;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Persists a {@link DynamicSettings} as a snapshot plus a journal of the changes made since. Every change is appended
+ * to the journal as one JSON line holding a sequence number, the time, who made it (see {@link #source(String)}) and
+ * only the settings that changed, so frequent small edits never rewrite the whole config. Once the journal has
+ * {@code compactAfter} records it is folded into a new snapshot.
+ * <p>
+ * {@link #open()} loads the snapshot and replays the journal records after it. A record cut short by a crash is
+ * dropped. Records are not synced to disk one by one, so a power loss can lose the last few, snapshots are.
+ */
+public class SettingsJournal implements Closeable {
+    private static final System.Logger LOGGER = System.getLogger(SettingsJournal.class.getName());
+    private static final ThreadLocal<String> SOURCE = ThreadLocal.withInitial(() -> "local");
+
+    /**
+     * tags changes made on this thread until the returned scope is closed, for example changes applied from an editor
+     * process. Only changes made while the journal's listener runs on the same thread are tagged, which it does
+     * since it records changes as they happen.
+     */
+    public static Scope source(String source) {
+        String previous = SOURCE.get();
+        SOURCE.set(source);
+        return () -> SOURCE.set(previous);
+    }
+
+    /**
+     * runs {@code body} with the changes it makes tagged with {@code source}, like {@link #source(String)}
+     */
+    public static void withSource(String source, DynamicSettings.Update body) throws IOException {
+        String previous = SOURCE.get();
+        SOURCE.set(source);
+        try {
+            body.apply();
+        } finally {
+            SOURCE.set(previous);
+        }
+    }
+
+    private final DynamicSettings settings;
+    private final Path snapshot;
+    private final Path journal;
+    private final int compactAfter;
+    private FileChannel out;
+    private DynamicSettings.Subscription subscription;
+    private long sequence;
+    private long recorded;
+    private int records;
+
+    public SettingsJournal(DynamicSettings settings, Path snapshot) {
+        this(settings, snapshot, 1000);
+    }
+
+    public SettingsJournal(DynamicSettings settings, Path snapshot, int compactAfter) {
+        this.settings = settings;
+        this.snapshot = snapshot.toAbsolutePath();
+        this.journal = this.snapshot.resolveSibling(this.snapshot.getFileName() + ".journal");
+        this.compactAfter = compactAfter;
+    }
+
+    public Path getSnapshot() {
+        return this.snapshot;
+    }
+
+    public Path getJournal() {
+        return this.journal;
+    }
+
+    /**
+     * loads the snapshot, replays the journal on top of it and starts recording changes
+     */
+    public synchronized void open() throws IOException {
+        if (this.out != null) return;
+        long snapshotSequence = this.loadSnapshot();
+        this.sequence = snapshotSequence;
+        long valid = this.replay(snapshotSequence);
+        this.out = FileChannel.open(this.journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        if (this.out.size() > valid) {
+            LOGGER.log(System.Logger.Level.WARNING, "Dropping {0} bytes of incomplete journal records", this.out.size() - valid);
+            this.out.truncate(valid);
+        }
+        this.out.position(valid);
+        this.recorded = this.settings.getModCount();
+        this.subscription = this.settings.addListener(Runnable::run, e -> this.record());
+    }
+
+    private long loadSnapshot() throws IOException {
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(this.snapshot, StandardCharsets.UTF_8))) {
+            reader.setStrictness(Strictness.LENIENT);
+            long sequence = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "sequence" -> sequence = reader.nextLong();
+                    case "settings" -> this.settings.deserialize(new JsonSettingsReader(reader));
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return sequence;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * @return how many bytes of the journal hold complete records
+     */
+    private long replay(long after) throws IOException {
+        long valid = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(this.journal))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                try {
+                    this.apply(line.toString(StandardCharsets.UTF_8), after);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Stopped replaying " + this.journal + " at a bad record", e);
+                    return valid;
+                }
+                valid += line.size() + 1;
+                this.records++;
+                line.reset();
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+        return valid;
+    }
+
+    private void apply(String line, long after) throws IOException {
+        JsonReader reader = new JsonReader(new StringReader(line));
+        reader.setStrictness(Strictness.LENIENT);
+        reader.beginObject();
+        long sequence = -1;
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "sequence" -> sequence = reader.nextLong();
+                case "changes" -> {
+                    // sequence is always written first
+                    if (sequence > after) {
+                        this.settings.deserialize(new JsonSettingsReader(reader));
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        this.sequence = Math.max(this.sequence, sequence);
+    }
+
+    private synchronized void record() {
+        if (this.out == null) return;
+        try {
+            StringWriter line = new StringWriter();
+            JsonWriter writer = new JsonWriter(line);
+            writer.setStrictness(Strictness.LENIENT);
+            // the version and the changes are read under one lock, so a write can't land in this record and the next
+            this.settings.beginWrite();
+            try {
+                long since = this.recorded;
+                this.recorded = this.settings.getModCount();
+                // an earlier record already picked these changes up
+                if (this.recorded == since) return;
+                writer.beginObject();
+                writer.name("sequence").value(++this.sequence);
+                writer.name("time").value(System.currentTimeMillis());
+                writer.name("source").value(SOURCE.get());
+                writer.name("changes");
+                this.settings.serializeChanges(new JsonSettingsWriter(writer), since);
+            } finally {
+                this.settings.endWrite();
+            }
+            writer.endObject();
+            writer.flush();
+            line.write('\n');
+            ByteBuffer buffer = ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                this.out.write(buffer);
+            }
+            if (++this.records >= this.compactAfter) this.compact();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to record settings change in " + this.journal, e);
+        }
+    }
+
+    /**
+     * writes the current settings as a new snapshot and empties the journal
+     */
+    public synchronized void compact() throws IOException {
+        StringWriter snapshot = new StringWriter();
+        JsonWriter writer = new JsonWriter(snapshot);
+        writer.setStrictness(Strictness.LENIENT);
+        writer.beginObject();
+        writer.name("sequence").value(this.sequence);
+        writer.name("settings");
+        long version;
+        this.settings.beginWrite();
+        try {
+            this.settings.serialize(new JsonSettingsWriter(writer));
+            version = this.settings.getModCount();
+        } finally {
+            this.settings.endWrite();
+        }
+        writer.endObject();
+        writer.flush();
+        SettingsStore.write(this.snapshot, snapshot.toString().getBytes(StandardCharsets.UTF_8));
+        // the snapshot holds everything up to here, records after it mustn't repeat any of it
+        this.recorded = version;
+        // records up to the snapshot's sequence are skipped on replay, so a crash before this truncate is harmless
+        if (this.out != null) {
+            this.out.truncate(0);
+            this.out.position(0);
+        }
+        this.records = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.subscription != null) {
+            this.subscription.close();
+            this.subscription = null;
+        }
+        if (this.out != null) {
+            this.out.force(true);
+            this.out.close();
+            this.out = null;
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+}
@@ -0,0 +1,207 @@
+package xyz.wagyourtail.subprocess_config.settings.store;
+
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a {@link DynamicSettings} in a file. Saves go to a temporary file that is then moved over the real one, so
+ * the file is never seen half written, and are skipped when the content hasn't changed since it was last saved or
+ * loaded. {@link #watch()} picks up edits made to the file by something else and applies them through
+ * {@link DynamicSettings#deserialize}.
+ */
+public class SettingsStore implements Closeable {
+    private static final System.Logger LOGGER = System.getLogger(SettingsStore.class.getName());
+
+    private final DynamicSettings settings;
+    private final Path file;
+    private final SettingsCodec codec;
+    // hash of the bytes last known to be in the file, and of what the settings serialized to at that point, which
+    // differ when the file was written by hand
+    private byte[] fileHash;
+    private byte[] contentHash;
+    private boolean loading;
+    private DynamicSettings.Subscription autosave;
+    private WatchService watcher;
+    private Thread watchThread;
+
+    public SettingsStore(DynamicSettings settings, Path file) {
+        this(settings, file, SettingsCodec.JSON);
+    }
+
+    public SettingsStore(DynamicSettings settings, Path file, SettingsCodec codec) {
+        this.settings = settings;
+        this.file = file.toAbsolutePath();
+        this.codec = codec;
+    }
+
+    public DynamicSettings getSettings() {
+        return this.settings;
+    }
+
+    public Path getFile() {
+        return this.file;
+    }
+
+    private static byte[] hash(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * applies the file as one {@link DynamicSettings#update}, so a file that can't be read or that breaks a constraint
+     * leaves the settings as they were
+     *
+     * @return false if there is no file yet, or it hasn't changed since it was last loaded or saved
+     * @throws xyz.wagyourtail.subprocess_config.settings.ValidationException if the file breaks a constraint
+     */
+    public synchronized boolean load() throws IOException {
+        byte[] data;
+        try {
+            data = Files.readAllBytes(this.file);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        byte[] hash = hash(data);
+        if (Arrays.equals(hash, this.fileHash)) return false;
+        this.loading = true;
+        try {
+            this.settings.update(() -> this.codec.decode(this.settings, data));
+        } finally {
+            this.loading = false;
+        }
+        this.fileHash = hash;
+        this.contentHash = hash(this.codec.encode(this.settings));
+        return true;
+    }
+
+    /**
+     * @return false if the settings haven't changed since they were last loaded or saved, so nothing was written
+     */
+    public synchronized boolean save() throws IOException {
+        byte[] data = this.codec.encode(this.settings);
+        byte[] hash = hash(data);
+        if (Arrays.equals(hash, this.contentHash)) return false;
+        write(this.file, data);
+        this.fileHash = hash;
+        this.contentHash = hash;
+        return true;
+    }
+
+    /**
+     * writes to a temporary file next to {@code file} and moves it into place, so readers see either the old or the
+     * new content
+     */
+    static void write(Path file, byte[] data) throws IOException {
+        Path dir = file.getParent();
+        Files.createDirectories(dir);
+        Path temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * saves after every change to the settings, bursts of changes are saved once
+     */
+    public synchronized void autosave(Executor executor) {
+        if (this.autosave != null) return;
+        this.autosave = this.settings.addListener(executor, e -> this.autosave());
+    }
+
+    private synchronized void autosave() {
+        // changes applied by load() are already in the file, this is only reached while loading on the same thread
+        if (this.loading) return;
+        try {
+            this.save();
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Failed to save settings to " + this.file, e);
+        }
+    }
+
+    /**
+     * starts reloading the settings whenever the file changes
+     */
+    public synchronized void watch() throws IOException {
+        if (this.watcher != null) return;
+        WatchService watcher = this.file.getFileSystem().newWatchService();
+        Files.createDirectories(this.file.getParent());
+        this.file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        this.watcher = watcher;
+        this.watchThread = new Thread(() -> this.watch(watcher), "SettingsStore watcher " + this.file.getFileName());
+        this.watchThread.setDaemon(true);
+        this.watchThread.start();
+    }
+
+    private void watch(WatchService watcher) {
+        try {
+            while (true) {
+                WatchKey key = watcher.take();
+                boolean changed = this.changed(key);
+                // editors tend to write a file in several steps, wait for them to settle before reading it
+                while ((key = watcher.poll(50, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= this.changed(key);
+                }
+                if (!changed) continue;
+                try {
+                    if (this.load()) LOGGER.log(System.Logger.Level.DEBUG, "Reloaded settings from {0}", this.file);
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Failed to reload settings from " + this.file, e);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private boolean changed(WatchKey key) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || this.file.getFileName().equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.autosave != null) {
+            this.autosave.close();
+            this.autosave = null;
+        }
+        if (this.watcher != null) {
+            this.watcher.close();
+            this.watcher = null;
+            this.watchThread = null;
+        }
+    }
+
+}
@@ -0,0 +1,318 @@
+package xyz.wagyourtail.subprocess_config.processor;
+
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LiteralTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.Trees;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a {@code SettingsClassCodec} for every class annotated with {@code GenerateCodec}, and lists them in
+ * {@code META-INF/services} for {@code ClassCodecs} to find. Setting names are taken from the string literal passed to
+ * the {@code register} call initializing each field, which needs the compiler's tree API.
+ */
+public class CodecProcessor extends AbstractProcessor {
+    private static final String PACKAGE = "xyz.wagyourtail.subprocess_config.settings";
+    private static final String ANNOTATION = PACKAGE + ".codec.GenerateCodec";
+    private static final String CODEC = PACKAGE + ".codec.SettingsClassCodec";
+    private static final String SETTINGS = PACKAGE + ".DynamicSettings";
+
+    private final Set<String> generated = new LinkedHashSet<>();
+    private Trees trees;
+    private Types types;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        this.trees = Trees.instance(processingEnv);
+        this.types = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Set.of(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            this.writeServices();
+            return false;
+        }
+        for (TypeElement annotation : annotations) {
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() != ElementKind.CLASS) {
+                    this.error(element, "@GenerateCodec only applies to classes");
+                    continue;
+                }
+                try {
+                    this.generate((TypeElement) element);
+                } catch (IOException e) {
+                    this.error(element, "Failed to write codec: " + e.getMessage());
+                }
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        TypeMirror settings = this.type(SETTINGS);
+        if (!this.types.isSameType(type.getSuperclass(), settings)) {
+            this.error(type, "@GenerateCodec classes must extend DynamicSettings directly");
+            return;
+        }
+        if (!type.getTypeParameters().isEmpty()) {
+            this.error(type, "@GenerateCodec classes can't be generic");
+            return;
+        }
+        List<Field> fields = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        boolean valid = true;
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            if (field.getModifiers().contains(Modifier.STATIC)) continue;
+            if (!this.types.isAssignable(this.types.erasure(field.asType()), this.type(SETTINGS + ".Setting"))) continue;
+            Field parsed = this.field(field);
+            if (parsed == null) {
+                valid = false;
+            } else if (!names.add(parsed.name)) {
+                this.error(field, "Setting " + parsed.name + " is registered twice");
+                valid = false;
+            } else {
+                fields.add(parsed);
+            }
+        }
+        if (!valid) return;
+
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String codecName = this.flatName(type) + "Codec";
+        String qualified = packageName.isEmpty() ? codecName : packageName + "." + codecName;
+        String target = type.getQualifiedName().toString();
+        JavaFileObject file = this.processingEnv.getFiler().createSourceFile(qualified, type);
+        try (PrintWriter out = new PrintWriter(file.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ";");
+                out.println();
+            }
+            out.println("@javax.annotation.processing.Generated(\"" + CodecProcessor.class.getName() + "\")");
+            out.println("public final class " + codecName + " implements " + CODEC + "<" + target + "> {");
+            out.print("    private static final String[] NAMES = {");
+            for (int i = 0; i < fields.size(); i++) {
+                if (i > 0) out.print(", ");
+                out.print(this.processingEnv.getElementUtils().getConstantExpression(fields.get(i).name));
+            }
+            out.println("};");
+            out.println();
+            out.println("    @Override");
+            out.println("    public Class<" + target + "> type() {");
+            out.println("        return " + target + ".class;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public String[] names() {");
+            out.println("        return NAMES;");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public " + target + " create() {");
+            if (this.constructible(type)) {
+                out.println("        return new " + target + "();");
+            } else {
+                out.println("        throw new UnsupportedOperationException(\"" + target + " has no accessible no argument constructor\");");
+            }
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void serialize(" + target + " settings, " + PACKAGE + ".codec.SettingsWriter writer, long since, boolean outline) throws java.io.IOException {");
+            out.println("        writer.beginSettings(NAMES);");
+            for (int i = 0; i < fields.size(); i++) {
+                Field field = fields.get(i);
+                String access = "settings." + field.field;
+                if (field.kind == Kind.GROUP) {
+                    out.println("        if (!outline && " + access + ".isLoaded() && " + access + ".isModifiedSince(since)) {");
+                } else {
+                    out.println("        if (" + access + ".isModifiedSince(since)) {");
+                }
+                out.println("            writer.name(" + i + ");");
+                out.println("            " + field.kind.write(access) + ";");
+                out.println("        }");
+            }
+            out.println("        writer.endSettings();");
+            out.println("    }");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void deserialize(" + target + " settings, " + PACKAGE + ".codec.SettingsReader reader) throws java.io.IOException {");
+            out.println("        reader.beginSettings();");
+            out.println("        while (reader.hasNext()) {");
+            out.println("            String name = reader.nextName();");
+            out.println("            switch (name) {");
+            for (Field field : fields) {
+                out.println("                case " + this.processingEnv.getElementUtils().getConstantExpression(field.name) + " -> " + field.kind.read("settings." + field.field) + ";");
+            }
+            out.println("                default -> " + PACKAGE + ".codec.ClassCodecs.skipUnknown(reader, name);");
+            out.println("            }");
+            out.println("        }");
+            out.println("        reader.endSettings();");
+            out.println("    }");
+            out.println();
+            out.println("}");
+        }
+        this.generated.add(qualified);
+    }
+
+    /**
+     * @return the setting registered by the field's initializer, or null after reporting why it can't be used
+     */
+    private Field field(VariableElement field) {
+        if (field.getModifiers().contains(Modifier.PRIVATE)) {
+            this.error(field, "Settings of a @GenerateCodec class can't be private");
+            return null;
+        }
+        if (!field.getModifiers().contains(Modifier.FINAL)) {
+            this.error(field, "Settings of a @GenerateCodec class must be final");
+            return null;
+        }
+        Tree tree = this.trees.getTree(field);
+        ExpressionTree initializer = tree instanceof VariableTree variable ? variable.getInitializer() : null;
+        if (!(initializer instanceof MethodInvocationTree call) || !this.isRegister(call.getMethodSelect()) || call.getArguments().isEmpty()
+            || !(call.getArguments().get(0) instanceof LiteralTree literal) || !(literal.getValue() instanceof String name)) {
+            this.error(field, "Settings of a @GenerateCodec class must be initialized with register(\"name\", ...)");
+            return null;
+        }
+        return new Field(field.getSimpleName().toString(), name, this.kind(field.asType()));
+    }
+
+    private boolean isRegister(ExpressionTree method) {
+        String name;
+        if (method instanceof IdentifierTree identifier) {
+            name = identifier.getName().toString();
+        } else if (method instanceof MemberSelectTree select) {
+            name = select.getIdentifier().toString();
+        } else {
+            return false;
+        }
+        return name.startsWith("register");
+    }
+
+    private Kind kind(TypeMirror type) {
+        TypeMirror erased = this.types.erasure(type);
+        if (this.types.isAssignable(erased, this.type(SETTINGS + ".GroupSetting"))) return Kind.GROUP;
+        for (Kind kind : Kind.values()) {
+            for (String name : kind.types) {
+                if (this.types.isSameType(erased, this.type(SETTINGS + "." + name))) return kind;
+            }
+        }
+        return Kind.OTHER;
+    }
+
+    private boolean constructible(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) return false;
+        if (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC)) return false;
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) return true;
+        }
+        return false;
+    }
+
+    private String flatName(TypeElement type) {
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element outer = type.getEnclosingElement(); outer instanceof TypeElement; outer = outer.getEnclosingElement()) {
+            name.insert(0, outer.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    private TypeMirror type(String name) {
+        return this.types.erasure(this.processingEnv.getElementUtils().getTypeElement(name).asType());
+    }
+
+    private void writeServices() {
+        if (this.generated.isEmpty()) return;
+        try {
+            FileObject file = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", "META-INF/services/" + CODEC);
+            try (Writer out = file.openWriter()) {
+                for (String codec : this.generated) {
+                    out.write(codec);
+                    out.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Failed to list settings codecs: " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private record Field(String field, String name, Kind kind) {
+    }
+
+    /**
+     * how a field is read and written, the built-in settings are inlined so their values are never boxed
+     */
+    private enum Kind {
+        INT("writer.writeInt(%s.getInt())", "%s.setInt(reader.readInt())", "IntSetting", "BoundedIntSetting"),
+        LONG("writer.writeLong(%s.getLong())", "%s.setLong(reader.readLong())", "LongSetting"),
+        FLOAT("writer.writeFloat(%s.getFloat())", "%s.setFloat(reader.readFloat())", "FloatSetting"),
+        DOUBLE("writer.writeDouble(%s.getDouble())", "%s.setDouble(reader.readDouble())", "DoubleSetting", "BoundedDoubleSetting"),
+        BOOLEAN("writer.writeBoolean(%s.get())", "%s.set(reader.readBoolean())", "BooleanSetting"),
+        STRING("writer.writeString(%s.get())", "%s.set(reader.readString())", "StringSetting"),
+        CHAR("writer.writeChar(%s.get())", "%s.set(reader.readChar())", "CharSetting"),
+        GROUP("%s.serializeChanges(writer, since)", "%s.deserialize(reader)"),
+        OTHER("%s.serializeChanges(writer, since)", "%s.deserialize(reader)");
+
+        private final String write;
+        private final String read;
+        private final String[] types;
+
+        Kind(String write, String read, String... types) {
+            this.write = write;
+            this.read = read;
+            this.types = types;
+        }
+
+        private String write(String field) {
+            return String.format(this.write, field);
+        }
+
+        private String read(String field) {
+            return String.format(this.read, field);
+        }
+    }
+
+}
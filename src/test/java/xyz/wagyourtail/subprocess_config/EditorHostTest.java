@@ -0,0 +1,113 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.wagyourtail.subprocess_config.settings.TestSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EditorHostTest {
+    // well under the startup timeout, so a test that passes can't have been saved by it
+    private static final Duration LIMIT = Duration.ofSeconds(30);
+
+    @TempDir
+    Path dir;
+    private EditorHost host;
+
+    private EditorHost host(String mode) {
+        ChildLauncher launcher = ChildLauncher.builder()
+            .mainClass(StubChild.class.getName())
+            .cdsDirectory(null)
+            .option("-D" + StubChild.MODE + "=" + mode, "-D" + StubChild.MARKER + "=" + this.dir.resolve("crashed"))
+            .build();
+        this.host = new EditorHost(Duration.ZERO, SettingsCodec.BINARY, launcher);
+        this.host.setStartupTimeout(Duration.ofMinutes(2));
+        this.host.setHeartbeatTimeout(Duration.ofMillis(1500));
+        return this.host;
+    }
+
+    @AfterEach
+    void stop() {
+        if (this.host != null) this.host.stop();
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(IOException.class, e.getCause());
+        return e.getCause();
+    }
+
+    @Test
+    void killsChildThatNeverAnswers() {
+        EditorHost host = this.host("silent");
+        host.setStartupTimeout(Duration.ofSeconds(2));
+        assertTimeoutPreemptively(LIMIT, () -> {
+            failure(host.open(new TestSettings()));
+            assertFalse(host.isRunning());
+        });
+    }
+
+    @Test
+    void killsChildThatStopsBeating() {
+        EditorHost host = this.host("hang");
+        assertTimeoutPreemptively(LIMIT, () -> {
+            assertTrue(failure(host.open(new TestSettings())).getMessage().contains("exited"));
+            assertEquals(0, host.getOpenCount());
+        });
+    }
+
+    @Test
+    void killsChildThatBeatsButStopsReading() {
+        EditorHost host = this.host("deaf");
+        assertTimeoutPreemptively(LIMIT, () -> {
+            failure(host.open(new TestSettings()));
+            assertFalse(host.isRunning());
+        });
+    }
+
+    @Test
+    void resyncsDeltaFromAnotherVersion() {
+        EditorHost host = this.host("drift");
+        TestSettings settings = new TestSettings();
+        assertTimeoutPreemptively(LIMIT, () -> {
+            assertTrue(host.open(settings).get().saved());
+            // the delta was dropped and the snapshot sent for the resync applied instead
+            assertEquals(77, settings.count.getInt());
+        });
+    }
+
+    @Test
+    void failsSessionLostToCrash() {
+        EditorHost host = this.host("crash");
+        assertTimeoutPreemptively(LIMIT, () -> {
+            failure(host.open(new TestSettings()));
+            assertTrue(Files.exists(this.dir.resolve("crashed")));
+        });
+    }
+
+    @Test
+    void relaunchesSessionLostToCrash() {
+        EditorHost host = this.host("crash");
+        host.setRelaunches(1);
+        TestSettings settings = new TestSettings();
+        assertTimeoutPreemptively(LIMIT, () -> {
+            assertEquals(settings, host.open(settings).get().config());
+            assertTrue(Files.exists(this.dir.resolve("crashed")));
+        });
+    }
+
+}
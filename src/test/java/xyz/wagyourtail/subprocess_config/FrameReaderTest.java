@@ -0,0 +1,171 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import xyz.wagyourtail.subprocess_config.settings.TestSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrameReaderTest {
+
+    private static void sendFull(FrameWriter writer, int session, long version, TestSettings settings) throws IOException {
+        writer.begin(Protocol.FULL, session).writeLong(version);
+        settings.serialize(writer.settings());
+        writer.end();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void roundTripsFrames(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, codec);
+        TestSettings edited = new TestSettings().edit();
+        writer.send(Protocol.OPENED, 3);
+        sendFull(writer, 4, 12, edited);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), codec);
+        assertEquals(Protocol.OPENED, reader.next());
+        assertEquals(3, reader.session());
+        assertEquals(Protocol.FULL, reader.next());
+        assertEquals(4, reader.session());
+        assertEquals(12, reader.data().readLong());
+        TestSettings target = new TestSettings();
+        target.deserialize(reader.settings());
+        assertEquals(TestSettings.json(edited), TestSettings.json(target));
+        assertEquals(-1, reader.next());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void readsPastSkippedFrame(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, codec);
+        TestSettings edited = new TestSettings().edit();
+        sendFull(writer, 1, 1, new TestSettings());
+        sendFull(writer, 1, 2, edited);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), codec);
+        reader.next();
+        reader.data().readLong();
+        reader.settings().skipValue();
+        reader.next();
+        assertEquals(2, reader.data().readLong());
+        TestSettings target = new TestSettings();
+        target.deserialize(reader.settings());
+        assertEquals(TestSettings.json(edited), TestSettings.json(target));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void readsPastPartlyReadFrame(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, codec);
+        TestSettings edited = new TestSettings().edit();
+        sendFull(writer, 1, 1, new TestSettings());
+        sendFull(writer, 1, 2, edited);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), codec);
+        reader.next();
+        reader.data().readLong();
+        // as if decoding failed a few entries in
+        reader.settings().beginSettings();
+        assertEquals("flag", reader.settings().nextName());
+        reader.settings().readBoolean();
+        reader.settings().nextName();
+        reader.next();
+        reader.data().readLong();
+        TestSettings target = new TestSettings();
+        target.deserialize(reader.settings());
+        assertEquals(TestSettings.json(edited), TestSettings.json(target));
+    }
+
+    @Test
+    void resetResendsNamesMissedByReader() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, SettingsCodec.BINARY);
+        TestSettings edited = new TestSettings().edit();
+        // the reader never looks at the first body, so it misses the names sent in it
+        sendFull(writer, 1, 1, edited);
+        sendFull(writer, 1, 2, edited);
+        writer.settings().reset();
+        sendFull(writer, 1, 3, edited);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), SettingsCodec.BINARY);
+        reader.next();
+        reader.next();
+        reader.data().readLong();
+        TestSettings target = new TestSettings();
+        // fails cleanly instead of reading the entries under the wrong names
+        assertThrows(IOException.class, () -> target.deserialize(reader.settings()));
+        reader.next();
+        assertEquals(3, reader.data().readLong());
+        target.deserialize(reader.settings());
+        assertEquals(TestSettings.json(edited), TestSettings.json(target));
+    }
+
+    @Test
+    void abandonedFrameSendsNamesAgain() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameWriter writer = new FrameWriter(out, SettingsCodec.BINARY);
+        TestSettings edited = new TestSettings().edit();
+        // as if the job building it threw before it was sent
+        writer.begin(Protocol.FULL, 1).writeLong(1);
+        edited.serialize(writer.settings());
+        sendFull(writer, 1, 2, edited);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), SettingsCodec.BINARY);
+        reader.next();
+        assertEquals(2, reader.data().readLong());
+        TestSettings target = new TestSettings();
+        target.deserialize(reader.settings());
+        assertEquals(TestSettings.json(edited), TestSettings.json(target));
+    }
+
+    @Test
+    void failedFrameSendsNamesAgain() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean[] fail = {true};
+        FrameWriter writer = new FrameWriter(new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                if (fail[0]) throw new IOException("write failed");
+                super.write(b);
+            }
+        }, SettingsCodec.BINARY);
+        TestSettings edited = new TestSettings().edit();
+        assertThrows(IOException.class, () -> sendFull(writer, 1, 1, edited));
+        fail[0] = false;
+        sendFull(writer, 1, 2, edited);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), SettingsCodec.BINARY);
+        reader.next();
+        assertEquals(2, reader.data().readLong());
+        TestSettings target = new TestSettings();
+        target.deserialize(reader.settings());
+        assertEquals(TestSettings.json(edited), TestSettings.json(target));
+    }
+
+    @Test
+    void rejectsOversizedFrame() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(1 << 20);
+        data.write(new byte[16]);
+
+        FrameReader reader = new FrameReader(new ByteArrayInputStream(out.toByteArray()), SettingsCodec.BINARY, 1024);
+        assertThrows(IOException.class, reader::next);
+    }
+
+}
@@ -0,0 +1,115 @@
+package xyz.wagyourtail.subprocess_config;
+
+import xyz.wagyourtail.subprocess_config.settings.SchemaSettings;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A child for {@link EditorHostTest} that misbehaves the way the {@value #MODE} system property says:
+ * <ul>
+ *     <li>{@code silent} reads commands but never sends anything</li>
+ *     <li>{@code deaf} beats but never reads a command</li>
+ *     <li>{@code hang} acknowledges an open, then stops beating</li>
+ *     <li>{@code crash} acknowledges an open and exits, unless the {@value #MARKER} file exists, which it creates, so
+ *     only the first child crashes and the next one closes the config normally</li>
+ *     <li>{@code drift} acknowledges an open and sends a delta based on a version the parent never saw, then answers
+ *     the resync with a snapshot, commits it and closes</li>
+ * </ul>
+ */
+public class StubChild {
+    static final String MODE = "stub.mode";
+    static final String MARKER = "stub.marker";
+    static final String[] COUNT = {"count"};
+
+    private static volatile long handled;
+    private static volatile boolean beating = true;
+
+    public static void main(String[] args) throws Exception {
+        String mode = System.getProperty(MODE);
+        SettingsCodec codec = SettingsCodec.byName(args.length > 1 ? args[1] : "binary");
+        FrameWriter out = new FrameWriter(System.out, codec);
+        if (!mode.equals("silent")) {
+            Thread heartbeat = new Thread(() -> {
+                try {
+                    while (beating) {
+                        synchronized (out) {
+                            out.begin(Protocol.HEARTBEAT, -1).writeLong(handled);
+                            out.end();
+                        }
+                        Thread.sleep(Protocol.HEARTBEAT_INTERVAL / 4);
+                    }
+                } catch (IOException | InterruptedException ignored) {
+                }
+            }, "StubChild heartbeat");
+            heartbeat.setDaemon(true);
+            heartbeat.start();
+        }
+        if (mode.equals("deaf")) {
+            Thread.sleep(Long.MAX_VALUE);
+        }
+        FrameReader reader = new FrameReader(System.in, codec);
+        int type;
+        while ((type = reader.next()) != -1) {
+            handled++;
+            if (type == Protocol.RESYNC && mode.equals("drift")) {
+                synchronized (out) {
+                    out.begin(Protocol.FULL, reader.session()).writeLong(7);
+                    writeCount(out, 77);
+                    out.end();
+                    out.begin(Protocol.COMMIT, reader.session()).writeLong(7);
+                    out.end();
+                    out.send(Protocol.CLOSED, reader.session());
+                }
+                continue;
+            }
+            if (type == Protocol.OPEN) {
+                reader.data().readUTF();
+            } else if (type == Protocol.OPEN_SCHEMA) {
+                new SchemaSettings(reader.data());
+            } else {
+                continue;
+            }
+            reader.settings().skipValue();
+            if (mode.equals("silent")) continue;
+            synchronized (out) {
+                out.begin(Protocol.OPENED, reader.session()).writeLong(0);
+                out.end();
+            }
+            if (mode.equals("drift")) {
+                synchronized (out) {
+                    DataOutputStream data = out.begin(Protocol.DELTA, reader.session());
+                    // the parent is at version 0
+                    data.writeLong(3);
+                    data.writeLong(4);
+                    writeCount(out, 99);
+                    out.end();
+                }
+            } else if (mode.equals("hang")) {
+                beating = false;
+            } else if (mode.equals("crash")) {
+                try {
+                    Files.writeString(Path.of(System.getProperty(MARKER)), "", StandardOpenOption.CREATE_NEW);
+                    System.exit(1);
+                } catch (IOException e) {
+                    // an earlier child crashed already
+                    synchronized (out) {
+                        out.send(Protocol.CLOSED, reader.session());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void writeCount(FrameWriter out, int count) throws IOException {
+        out.settings().beginSettings(COUNT);
+        out.settings().name(0);
+        out.settings().writeInt(count);
+        out.settings().endSettings();
+    }
+
+}
@@ -0,0 +1,70 @@
+package xyz.wagyourtail.subprocess_config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubProcessTest {
+    private Process process;
+    private FrameWriter commands;
+    private FrameReader frames;
+
+    @BeforeEach
+    void launch() throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        this.process = new ProcessBuilder(java, "-Djava.awt.headless=true", "-cp", System.getProperty("java.class.path"), SubProcess.class.getName(), "0", "binary")
+            .redirectError(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        this.commands = new FrameWriter(this.process.getOutputStream(), SettingsCodec.BINARY);
+        this.frames = new FrameReader(this.process.getInputStream(), SettingsCodec.BINARY);
+    }
+
+    @AfterEach
+    void kill() {
+        this.process.destroyForcibly();
+    }
+
+    private void open(int session, String className) throws IOException {
+        this.commands.begin(Protocol.OPEN, session).writeUTF(className);
+        this.commands.settings().beginSettings(new String[0]);
+        this.commands.settings().endSettings();
+        this.commands.end();
+    }
+
+    /**
+     * @return the type of the next frame that isn't a heartbeat
+     */
+    private int next() throws IOException {
+        int type;
+        do {
+            type = this.frames.next();
+        } while (type == Protocol.HEARTBEAT);
+        return type;
+    }
+
+    @Test
+    void failedCommandOnlyEndsItsSession() {
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            this.open(1, "no.such.Settings");
+            assertEquals(Protocol.FAILED, this.next());
+            assertEquals(1, this.frames.session());
+            assertTrue(this.frames.data().readUTF().contains("no.such.Settings"));
+
+            // the reader is still running, and answers commands for other sessions
+            this.open(2, "no.such.OtherSettings");
+            assertEquals(Protocol.FAILED, this.next());
+            assertEquals(2, this.frames.session());
+            assertTrue(this.process.isAlive());
+        });
+    }
+
+}
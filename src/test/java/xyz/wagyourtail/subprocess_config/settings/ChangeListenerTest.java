@@ -0,0 +1,138 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeListenerTest {
+
+    /**
+     * runs tasks only when asked, like an event queue that hasn't caught up yet
+     */
+    private static class QueuedExecutor implements Executor {
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            this.tasks.add(task);
+        }
+
+        int runAll() {
+            List<Runnable> tasks = new ArrayList<>(this.tasks);
+            this.tasks.clear();
+            tasks.forEach(Runnable::run);
+            return tasks.size();
+        }
+    }
+
+    @Test
+    void notifiesOncePerWriteSection() {
+        TestSettings settings = new TestSettings();
+        List<DynamicSettings.ChangeEvent> events = new ArrayList<>();
+        settings.addListener(Runnable::run, events::add);
+
+        settings.edit();
+
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).contains(settings.count));
+        assertTrue(events.get(0).contains(settings.tags));
+        // changes inside a group are changes to the group
+        assertTrue(events.get(0).contains(settings.inner));
+    }
+
+    @Test
+    void coalescesUntilDelivered() {
+        TestSettings settings = new TestSettings();
+        QueuedExecutor executor = new QueuedExecutor();
+        List<DynamicSettings.ChangeEvent> events = new ArrayList<>();
+        settings.addListener(executor, events::add);
+
+        settings.count.setInt(2);
+        settings.name.set("first");
+        settings.name.set("second");
+
+        assertEquals(1, executor.runAll());
+        assertEquals(1, events.size());
+        assertEquals(Set.of(settings.count, settings.name), events.get(0).getChanged());
+
+        settings.flag.set(true);
+        assertEquals(1, executor.runAll());
+        assertEquals(Set.of(settings.flag), events.get(1).getChanged());
+    }
+
+    @Test
+    void settingListenerGetsLatestValueOnce() {
+        TestSettings settings = new TestSettings();
+        QueuedExecutor executor = new QueuedExecutor();
+        List<String> names = new ArrayList<>();
+        settings.name.addListener(executor, names::add);
+
+        settings.count.setInt(5);
+        assertEquals(0, executor.runAll());
+
+        settings.name.set("first");
+        settings.name.set("second");
+        executor.runAll();
+        assertEquals(List.of("second"), names);
+    }
+
+    @Test
+    void deliversOnGivenExecutor() throws Exception {
+        TestSettings settings = new TestSettings();
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "ChangeListenerTest delivery"));
+        try {
+            CompletableFuture<String> thread = new CompletableFuture<>();
+            settings.addListener(executor, e -> thread.complete(Thread.currentThread().getName()));
+            settings.count.setInt(2);
+            assertEquals("ChangeListenerTest delivery", thread.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void closedSubscriptionIsNotDelivered() {
+        TestSettings settings = new TestSettings();
+        QueuedExecutor executor = new QueuedExecutor();
+        List<DynamicSettings.ChangeEvent> events = new ArrayList<>();
+        DynamicSettings.Subscription subscription = settings.addListener(executor, events::add);
+
+        settings.count.setInt(2);
+        subscription.close();
+        executor.runAll();
+        settings.count.setInt(3);
+        executor.runAll();
+
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    void rejectedDeliveryIsRetriedOnNextChange() {
+        TestSettings settings = new TestSettings();
+        boolean[] reject = {true};
+        List<DynamicSettings.ChangeEvent> events = new ArrayList<>();
+        settings.addListener(task -> {
+            if (reject[0]) throw new RejectedExecutionException();
+            task.run();
+        }, events::add);
+
+        settings.count.setInt(2);
+        reject[0] = false;
+        settings.name.set("next");
+
+        assertEquals(1, events.size());
+        assertEquals(Set.of(settings.name), events.get(0).getChanged());
+    }
+
+}
@@ -0,0 +1,68 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import org.junit.jupiter.api.Test;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeTrackingTest {
+
+    private static String changes(DynamicSettings settings, long since) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = SettingsCodec.JSON.writer(out);
+        settings.serializeChanges(writer, since);
+        writer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void tracksChangedSettings() {
+        TestSettings settings = new TestSettings();
+        long since = settings.getModCount();
+        assertFalse(settings.count.isModifiedSince(since));
+
+        settings.count.setInt(3);
+
+        assertTrue(settings.getModCount() > since);
+        assertTrue(settings.count.isModifiedSince(since));
+        assertFalse(settings.name.isModifiedSince(since));
+        assertFalse(settings.count.isModifiedSince(settings.getModCount()));
+    }
+
+    @Test
+    void sendsOnlyChangedSettings() throws IOException {
+        TestSettings settings = new TestSettings();
+        long since = settings.getModCount();
+        assertEquals("{}", changes(settings, since));
+
+        settings.flag.set(true);
+        settings.inner.get().label.set("nested");
+
+        assertEquals("{\"flag\":true,\"inner\":{\"label\":\"nested\"}}", changes(settings, since));
+        assertEquals("{}", changes(settings, settings.getModCount()));
+    }
+
+    @Test
+    void changesBuildOnEachOther() throws IOException {
+        TestSettings source = new TestSettings();
+        TestSettings target = new TestSettings();
+        long since = source.getModCount();
+        for (int i = 0; i < 3; i++) {
+            source.count.setInt(i);
+            source.name.set("name" + i);
+            String changes = changes(source, since);
+            since = source.getModCount();
+            target.deserialize(SettingsCodec.JSON.reader(new ByteArrayInputStream(changes.getBytes(StandardCharsets.UTF_8))));
+        }
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+    }
+
+}
@@ -0,0 +1,174 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionPatchTest {
+
+    private static byte[] changes(SettingsCodec codec, DynamicSettings settings, long since) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = codec.writer(out);
+        settings.serializeChanges(writer, since);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static String changesJson(DynamicSettings settings, long since) throws IOException {
+        return new String(changes(SettingsCodec.JSON, settings, since), StandardCharsets.UTF_8);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void replaysListPatch(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        Collections source = new Collections();
+        Collections target = new Collections();
+        long since = source.getModCount();
+        source.list.insert(2, "inserted");
+        source.list.set(0, "set");
+        source.list.remove(5);
+        source.list.move(1, 7);
+
+        String json = changesJson(source, since);
+        assertTrue(json.contains("\"+2\""), json);
+        assertTrue(json.contains("\"=0\""), json);
+        assertTrue(json.contains("\"-5\""), json);
+        assertTrue(json.contains("\">1\""), json);
+
+        target.deserialize(codec.reader(new ByteArrayInputStream(changes(codec, source, since))));
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void replaysMapPatch(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        Collections source = new Collections();
+        Collections target = new Collections();
+        long since = source.getModCount();
+        source.map.put("new", 100);
+        source.map.put("key3", 33);
+        source.map.remove("key5");
+
+        String json = changesJson(source, since);
+        assertTrue(json.contains("\"+new\""), json);
+        assertTrue(json.contains("\"+key3\""), json);
+        assertTrue(json.contains("\"-key5\""), json);
+        assertFalse(json.contains("key7"), json);
+
+        target.deserialize(codec.reader(new ByteArrayInputStream(changes(codec, source, since))));
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+        assertEquals(33, target.map.get("key3"));
+        assertFalse(target.map.keySet().contains("key5"));
+    }
+
+    @Test
+    void sendsEditedElementAsPatch() throws IOException {
+        Collections source = new Collections();
+        Collections target = new Collections();
+        long since = source.getModCount();
+        source.list.set(4, "edited");
+        source.map.put("key2", -2);
+
+        String json = changesJson(source, since);
+        assertTrue(json.contains("\"=4\""), json);
+        assertTrue(json.contains("\"+key2\""), json);
+
+        target.deserialize(SettingsCodec.JSON.reader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+    }
+
+    @Test
+    void sendsWholeListOnceMostOfItChanged() throws IOException {
+        Collections source = new Collections();
+        long since = source.getModCount();
+        for (int i = 0; i < source.list.size(); i++) {
+            source.list.set(i, "changed" + i);
+            source.list.set(i, "changed again" + i);
+        }
+
+        String json = changesJson(source, since);
+        assertFalse(json.contains("\"=0\""), json);
+        Collections target = new Collections();
+        target.deserialize(SettingsCodec.JSON.reader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+    }
+
+    @Test
+    void patchesBuildOnEachOther() throws IOException {
+        Collections source = new Collections();
+        Collections target = new Collections();
+        long since = source.getModCount();
+        source.list.add("first");
+        source.map.put("first", 1);
+        target.deserialize(SettingsCodec.BINARY.reader(new ByteArrayInputStream(changes(SettingsCodec.BINARY, source, since))));
+
+        since = source.getModCount();
+        source.list.remove(0);
+        source.list.add("second");
+        source.map.remove("first");
+        target.deserialize(SettingsCodec.BINARY.reader(new ByteArrayInputStream(changes(SettingsCodec.BINARY, source, since))));
+
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+    }
+
+    @Test
+    void rejectsOutOfBoundsPatch() {
+        Collections target = new Collections();
+        String patch = "{\"list\":{\"=10\":\"x\"}}";
+        assertThrows(IOException.class, () -> target.deserialize(SettingsCodec.JSON.reader(new ByteArrayInputStream(patch.getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void reconcilesIntoEmptyMap(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        Collections source = new Collections();
+        Empty target = new Empty();
+        assertEquals(Integer.class, target.map.getValueType());
+
+        // the constructor unboxes, so new entries need a real value to start from
+        codec.decode(target, codec.encode(source));
+        assertEquals(10, target.map.size());
+        assertEquals(7, target.map.get("key7"));
+
+        Empty patched = new Empty();
+        long since = source.getModCount();
+        source.map.put("new", 100);
+        patched.deserialize(codec.reader(new ByteArrayInputStream(changes(codec, source, since))));
+        assertEquals(100, patched.map.get("new"));
+    }
+
+    static class Empty extends DynamicSettings {
+        final MapSetting<Integer, IntSetting> map = registerMap("map", Integer.class, v -> new IntSetting("", v), Map.of());
+    }
+
+    static class Collections extends DynamicSettings {
+        final ListSetting<String, StringSetting> list = registerList("list", v -> new StringSetting("", v), "e0", "e1", "e2", "e3", "e4", "e5", "e6", "e7", "e8", "e9");
+        final MapSetting<Integer, IntSetting> map = registerMap("map", v -> new IntSetting("", v), entries());
+
+        private static Map<String, Integer> entries() {
+            Map<String, Integer> entries = new LinkedHashMap<>();
+            for (int i = 0; i < 10; i++) {
+                entries.put("key" + i, i);
+            }
+            return entries;
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.awt.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollectionSettingPanelTest {
+
+    private static void click(DynamicSettingsPanel.CollectionSettingPanel<?> panel, String text) {
+        for (Component component : panel.buttons.getComponents()) {
+            if (component instanceof JButton button && button.getText().equals(text)) {
+                button.doClick();
+                return;
+            }
+        }
+        throw new IllegalArgumentException(text);
+    }
+
+    private static List<String> rows(DynamicSettingsPanel.CollectionSettingPanel<?> panel) {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < panel.model.getSize(); i++) {
+            rows.add(panel.model.getElementAt(i));
+        }
+        return rows;
+    }
+
+    private static List<String> tags(TestSettings settings) {
+        List<String> tags = new ArrayList<>();
+        settings.tags.iterator().forEachRemaining(tags::add);
+        return tags;
+    }
+
+    private static DynamicSettingsPanel.ListSettingPanel<String> editTags(TestSettings settings) {
+        DynamicSettingsPanel.ListSettingPanel<String> panel = new DynamicSettingsPanel.ListSettingPanel<>(settings.tags, new JPanel(new GridBagLayout()), 0);
+        panel.input.setText("d");
+        click(panel, "Add");
+        panel.list.setSelectedIndex(0);
+        click(panel, "Down");
+        panel.list.setSelectedIndex(3);
+        click(panel, "Remove");
+        return panel;
+    }
+
+    @Test
+    void listEditsWaitForSave() throws IOException {
+        TestSettings settings = new TestSettings();
+        DynamicSettingsPanel.ListSettingPanel<String> panel = editTags(settings);
+
+        assertEquals(List.of("b", "a", "c"), rows(panel));
+        assertEquals(List.of("a", "b", "c"), tags(settings));
+
+        settings.update(panel::save);
+        assertEquals(List.of("b", "a", "c"), tags(settings));
+        assertEquals(List.of("b", "a", "c"), rows(panel));
+    }
+
+    @Test
+    void loadDropsListEdits() {
+        TestSettings settings = new TestSettings();
+        DynamicSettingsPanel.ListSettingPanel<String> panel = editTags(settings);
+
+        panel.load();
+        assertEquals(List.of("a", "b", "c"), rows(panel));
+        panel.save();
+        assertEquals(List.of("a", "b", "c"), tags(settings));
+    }
+
+    @Test
+    void listEditsRollBackWithUpdate() {
+        TestSettings settings = new TestSettings();
+        DynamicSettingsPanel.ListSettingPanel<String> panel = editTags(settings);
+
+        assertThrows(IOException.class, () -> settings.update(() -> {
+            panel.save();
+            throw new IOException("failed part way");
+        }));
+        assertEquals(List.of("a", "b", "c"), tags(settings));
+    }
+
+    @Test
+    void liveListEditsAreWrittenRightAway() {
+        TestSettings settings = new TestSettings();
+        DynamicSettingsPanel.ListSettingPanel<String> panel = new DynamicSettingsPanel.ListSettingPanel<>(settings.tags, new JPanel(new GridBagLayout()), 0);
+        panel.setLiveUpdate(true);
+        panel.input.setText("d");
+        click(panel, "Add");
+        assertEquals(List.of("a", "b", "c", "d"), tags(settings));
+    }
+
+    @Test
+    void mapEditsWaitForSave() throws IOException {
+        TestSettings settings = new TestSettings();
+        DynamicSettingsPanel.MapSettingPanel<Integer> panel = new DynamicSettingsPanel.MapSettingPanel<>(settings.limits, new JPanel(new GridBagLayout()), 0);
+        JTextField value = null;
+        for (Component component : panel.buttons.getComponents()) {
+            if (component instanceof JTextField field && field != panel.input) value = field;
+        }
+        panel.input.setText("mid");
+        value.setText("5");
+        click(panel, "Put");
+        panel.input.setText("high");
+        value.setText("20");
+        click(panel, "Put");
+        panel.list.setSelectedIndex(0);
+        click(panel, "Remove");
+
+        assertEquals(List.of("high = 20", "mid = 5"), rows(panel));
+        assertTrue(settings.limits.keySet().contains("low"));
+        assertFalse(settings.limits.keySet().contains("mid"));
+
+        settings.update(panel::save);
+        assertEquals(20, settings.limits.get("high"));
+        assertEquals(5, settings.limits.get("mid"));
+        assertFalse(settings.limits.keySet().contains("low"));
+    }
+
+}
@@ -0,0 +1,71 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotTest {
+
+    /**
+     * writes count, name, tags and the group's depth together, so any snapshot mixing two writes has them disagree
+     */
+    private static void write(TestSettings settings, int i) {
+        settings.beginWrite();
+        try {
+            settings.count.setInt(i);
+            settings.name.set("n" + i);
+            settings.tags.set(0, "t" + i);
+            settings.inner.get().depth.setInt(i);
+        } finally {
+            settings.endWrite();
+        }
+    }
+
+    @Test
+    void snapshotHoldsValuesAtItsModCount() {
+        TestSettings settings = new TestSettings();
+        write(settings, 5);
+        DynamicSettings.Snapshot snapshot = settings.snapshot();
+        write(settings, 6);
+
+        assertEquals(5, snapshot.get(settings.count));
+        assertEquals("n5", snapshot.get(settings.name));
+        assertEquals(List.of("t5", "b", "c"), snapshot.getList(settings.tags));
+        assertEquals(5, snapshot.getGroup(settings.inner).get(settings.inner.get().depth));
+        assertTrue(snapshot.getModCount() < settings.getModCount());
+    }
+
+    @Test
+    void snapshotsStayConsistentUnderConcurrentWrites() throws InterruptedException {
+        TestSettings settings = new TestSettings();
+        write(settings, 0);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                write(settings, i);
+            }
+        }, "SnapshotTest writer");
+        writer.start();
+        try {
+            long end = System.nanoTime() + 1_000_000_000L;
+            int snapshots = 0;
+            while (System.nanoTime() < end) {
+                DynamicSettings.Snapshot snapshot = settings.snapshot();
+                int count = snapshot.get(settings.count);
+                assertEquals("n" + count, snapshot.get(settings.name));
+                assertEquals("t" + count, snapshot.getList(settings.tags).get(0));
+                assertEquals(count, snapshot.getGroup(settings.inner).get(settings.inner.get().depth));
+                snapshots++;
+            }
+            assertTrue(snapshots > 0);
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+}
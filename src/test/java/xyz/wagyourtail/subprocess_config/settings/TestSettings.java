@@ -0,0 +1,79 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One setting of every kind, for tests that move whole configs around.
+ */
+public class TestSettings extends DynamicSettings {
+    public final BooleanSetting flag = register("flag", false);
+    public final IntSetting count = register("count", 1);
+    public final LongSetting big = register("big", 1L);
+    public final FloatSetting ratio = register("ratio", 0.5f);
+    public final DoubleSetting scale = register("scale", 1.0);
+    public final CharSetting separator = register("separator", ',');
+    public final StringSetting name = register("name", "default");
+    public final Setting<Mode> mode = register("mode", Mode.FAST);
+    public final ListSetting<String, StringSetting> tags = registerList("tags", v -> new StringSetting("", v), "a", "b", "c");
+    public final MapSetting<Integer, IntSetting> limits = registerMap("limits", v -> new IntSetting("", v), limits());
+    public final GroupSetting<Inner> inner = registerGroup("inner", new Inner());
+
+    private static Map<String, Integer> limits() {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        limits.put("low", 1);
+        limits.put("high", 10);
+        return limits;
+    }
+
+    /**
+     * changes every setting away from its default
+     */
+    public TestSettings edit() {
+        this.beginWrite();
+        try {
+            this.flag.set(true);
+            this.count.setInt(42);
+            this.big.setLong(Long.MAX_VALUE);
+            this.ratio.setFloat(0.25f);
+            this.scale.setDouble(-3.5);
+            this.separator.set(';');
+            this.name.set("edited \"name\" \u00e9");
+            this.mode.set(Mode.SAFE);
+            this.tags.add("d");
+            this.tags.set(0, "z");
+            this.limits.put("mid", 5);
+            this.limits.remove("low");
+            this.inner.get().depth.setInt(7);
+            this.inner.get().label.set("deep");
+        } finally {
+            this.endWrite();
+        }
+        return this;
+    }
+
+    /**
+     * @return the settings as JSON, for comparing two configs
+     */
+    public static String json(DynamicSettings settings) {
+        try {
+            return new String(SettingsCodec.JSON.encode(settings), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public enum Mode {
+        FAST, SAFE
+    }
+
+    public static class Inner extends DynamicSettings {
+        public final IntSetting depth = register("depth", 0);
+        public final StringSetting label = register("label", "");
+    }
+
+}
@@ -0,0 +1,109 @@
+package xyz.wagyourtail.subprocess_config.settings;
+
+import org.junit.jupiter.api.Test;
+import xyz.wagyourtail.subprocess_config.settings.codec.SettingsCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpdateRollbackTest {
+
+    @Test
+    void keepsValidUpdate() throws IOException {
+        Constrained settings = new Constrained();
+        settings.update(() -> {
+            settings.count.setInt(50);
+            settings.tags.add("d");
+        });
+        assertEquals(50, settings.count.getInt());
+        assertEquals(4, settings.tags.size());
+    }
+
+    @Test
+    void rollsBackViolation() {
+        Constrained settings = new Constrained();
+        String before = TestSettings.json(settings);
+        long modCount = settings.getModCount();
+
+        ValidationException e = assertThrows(ValidationException.class, () -> settings.update(() -> {
+            settings.flag.set(true);
+            settings.name.set("two words");
+            settings.count.setInt(500);
+            settings.tags.add("d");
+            settings.limits.remove("low");
+            settings.inner.get().depth.setInt(3);
+        }));
+
+        assertEquals(2, e.getViolations().size());
+        assertEquals(before, TestSettings.json(settings));
+        assertTrue(settings.getModCount() > modCount);
+        assertTrue(settings.getViolations().isEmpty());
+    }
+
+    @Test
+    void rollsBackFailedUpdate() {
+        Constrained settings = new Constrained();
+        String before = TestSettings.json(settings);
+
+        assertThrows(IOException.class, () -> settings.update(() -> {
+            settings.edit();
+            throw new IOException("failed part way");
+        }));
+
+        assertEquals(before, TestSettings.json(settings));
+    }
+
+    @Test
+    void rollsBackInvalidDeserialize() {
+        Constrained settings = new Constrained();
+        String before = TestSettings.json(settings);
+        byte[] changes = "{\"flag\":true,\"name\":\"a b\",\"count\":7}".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(ValidationException.class, () -> settings.update(() -> settings.deserialize(SettingsCodec.JSON.reader(new ByteArrayInputStream(changes)))));
+
+        assertEquals(before, TestSettings.json(settings));
+    }
+
+    @Test
+    void nestedUpdateRollsBackWithOuter() {
+        Constrained settings = new Constrained();
+        String before = TestSettings.json(settings);
+
+        assertThrows(ValidationException.class, () -> settings.update(() -> {
+            // valid on its own, but only checked once the outer update ends
+            settings.inner.get().update(() -> settings.inner.get().depth.setInt(5));
+            settings.count.setInt(-1);
+        }));
+
+        assertEquals(before, TestSettings.json(settings));
+        assertEquals(0, settings.inner.get().depth.getInt());
+    }
+
+    @Test
+    void onlyChecksTouchedConstraints() throws IOException {
+        Constrained settings = new Constrained();
+        // written outside an update, so it's kept even though it breaks a constraint
+        settings.count.setInt(1000);
+        assertEquals(List.of(settings.countRange.getViolation()), settings.getViolations());
+
+        settings.update(() -> settings.name.set("fine"));
+
+        assertEquals("fine", settings.name.get());
+        assertEquals(1000, settings.count.getInt());
+    }
+
+    static class Constrained extends TestSettings {
+        final Constraint countRange = addConstraint(Constraint.range(this.count, 0, 100));
+
+        {
+            addConstraint(Constraint.matches(this.name, "\\S+").when(this.flag));
+        }
+    }
+
+}
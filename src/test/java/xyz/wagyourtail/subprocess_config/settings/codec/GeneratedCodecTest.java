@@ -0,0 +1,104 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import xyz.wagyourtail.subprocess_config.ExampleSettings;
+import xyz.wagyourtail.subprocess_config.settings.DynamicSettings;
+import xyz.wagyourtail.subprocess_config.settings.TestSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeneratedCodecTest {
+
+    /**
+     * a class of its own, so it has no generated codec and goes through the reflective path
+     */
+    private static class Reflective extends ExampleSettings {
+    }
+
+    private static <T extends ExampleSettings> T edit(T settings) {
+        settings.example1.set(true);
+        settings.example2.set("edited \"value\"");
+        settings.example3.setInt(42);
+        settings.example4.setDouble(-2.5);
+        return settings;
+    }
+
+    private static byte[] changes(SettingsCodec codec, DynamicSettings settings, long since) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = codec.writer(out);
+        settings.serializeChanges(writer, since);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    @Test
+    void onlyAnnotatedClassHasCodec() {
+        assertNotNull(ClassCodecs.get(ExampleSettings.class));
+        assertNull(ClassCodecs.get(Reflective.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void writesLikeReflectivePath(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        assertArrayEquals(codec.encode(new Reflective()), codec.encode(new ExampleSettings()));
+        assertArrayEquals(codec.encode(edit(new Reflective())), codec.encode(edit(new ExampleSettings())));
+
+        ExampleSettings generated = new ExampleSettings();
+        Reflective reflective = new Reflective();
+        long generatedSince = generated.getModCount();
+        long reflectiveSince = reflective.getModCount();
+        generated.example3.setInt(7);
+        reflective.example3.setInt(7);
+        assertArrayEquals(changes(codec, reflective, reflectiveSince), changes(codec, generated, generatedSince));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void readsWhatReflectivePathWrites(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        ExampleSettings generated = new ExampleSettings();
+        codec.decode(generated, codec.encode(edit(new Reflective())));
+        assertEquals(TestSettings.json(edit(new ExampleSettings())), TestSettings.json(generated));
+
+        Reflective reflective = new Reflective();
+        codec.decode(reflective, codec.encode(edit(new ExampleSettings())));
+        assertEquals(TestSettings.json(edit(new ExampleSettings())), TestSettings.json(reflective));
+    }
+
+    @Test
+    void skipsUnknownSettings() throws IOException {
+        ExampleSettings settings = new ExampleSettings();
+        String json = "{\"unknown\":[1,2],\"example3\":5}";
+        settings.deserialize(SettingsCodec.JSON.reader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))));
+        assertEquals(5, settings.example3.getInt());
+    }
+
+    @Test
+    void fallsBackOnceNamesDiffer() throws IOException {
+        ExampleSettings settings = new ExampleSettings();
+        // resolves the generated codec before the names change
+        SettingsCodec.JSON.encode(settings);
+        settings.register("extra", new DynamicSettings.IntSetting("extra", 5));
+
+        String json = TestSettings.json(settings);
+        assertTrue(json.contains("\"extra\":5"), json);
+
+        ExampleSettings target = new ExampleSettings();
+        DynamicSettings.IntSetting extra = target.register("extra", new DynamicSettings.IntSetting("extra", 0));
+        SettingsCodec.JSON.decode(target, json.getBytes(StandardCharsets.UTF_8));
+        assertEquals(5, extra.getInt());
+    }
+
+}
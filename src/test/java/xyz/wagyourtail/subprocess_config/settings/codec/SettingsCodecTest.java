@@ -0,0 +1,94 @@
+package xyz.wagyourtail.subprocess_config.settings.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import xyz.wagyourtail.subprocess_config.settings.TestSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettingsCodecTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void roundTripsEverySetting(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        TestSettings source = new TestSettings().edit();
+        TestSettings target = new TestSettings();
+        assertNotEquals(TestSettings.json(source), TestSettings.json(target));
+
+        codec.decode(target, codec.encode(source));
+
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+        assertEquals(List.of("z", "b", "c", "d"), List.of(target.tags.get(0), target.tags.get(1), target.tags.get(2), target.tags.get(3)));
+        assertEquals(TestSettings.Mode.SAFE, target.mode.get());
+        assertEquals(7, target.inner.get().depth.getInt());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"json", "binary"})
+    void roundTripsChanges(String name) throws IOException {
+        SettingsCodec codec = SettingsCodec.byName(name);
+        TestSettings source = new TestSettings();
+        long since = source.getModCount();
+        source.count.setInt(3);
+        source.inner.get().label.set("changed");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = codec.writer(out);
+        source.serializeChanges(writer, since);
+        writer.flush();
+
+        TestSettings target = new TestSettings();
+        target.name.set("kept");
+        target.deserialize(codec.reader(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals(3, target.count.getInt());
+        assertEquals("changed", target.inner.get().label.get());
+        // settings left out of the changes aren't touched
+        assertEquals("kept", target.name.get());
+    }
+
+    @Test
+    void binaryRejectsIntOutOfRange() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = SettingsCodec.BINARY.writer(out);
+        writer.writeLong(1L << 40);
+        writer.writeLong(-5);
+        writer.flush();
+
+        SettingsReader reader = SettingsCodec.BINARY.reader(new ByteArrayInputStream(out.toByteArray()));
+        assertThrows(IOException.class, reader::readInt);
+        assertEquals(-5, reader.readInt());
+    }
+
+    @Test
+    void binarySendsNamesOnce() throws IOException {
+        TestSettings source = new TestSettings();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SettingsWriter writer = SettingsCodec.BINARY.writer(out);
+        source.serialize(writer);
+        writer.flush();
+        int first = out.size();
+        source.edit();
+        source.serialize(writer);
+        writer.flush();
+        // the second value only refers to the names sent with the first
+        assertTrue(out.size() - first < first);
+
+        SettingsReader reader = SettingsCodec.BINARY.reader(new ByteArrayInputStream(out.toByteArray()));
+        TestSettings target = new TestSettings().edit();
+        target.deserialize(reader);
+        assertEquals(TestSettings.json(new TestSettings()), TestSettings.json(target));
+        target.deserialize(reader);
+        assertEquals(TestSettings.json(source), TestSettings.json(target));
+    }
+
+}
@@ -0,0 +1,123 @@
+package xyz.wagyourtail.subprocess_config.settings.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.wagyourtail.subprocess_config.settings.TestSettings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettingsJournalTest {
+    @TempDir
+    Path dir;
+
+    private TestSettings reopen() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsJournal journal = new SettingsJournal(settings, this.dir.resolve("settings.json"))) {
+            journal.open();
+        }
+        return settings;
+    }
+
+    private static List<String> tags(TestSettings settings) {
+        List<String> tags = new ArrayList<>();
+        settings.tags.iterator().forEachRemaining(tags::add);
+        return tags;
+    }
+
+    @Test
+    void replaysChanges() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsJournal journal = new SettingsJournal(settings, this.dir.resolve("settings.json"))) {
+            journal.open();
+            settings.count.setInt(5);
+            settings.tags.add("d");
+            settings.tags.move(0, 2);
+            settings.limits.put("mid", 5);
+            settings.limits.remove("low");
+            settings.inner.get().label.set("nested");
+        }
+        assertFalse(Files.exists(this.dir.resolve("settings.json")));
+
+        assertEquals(TestSettings.json(settings), TestSettings.json(this.reopen()));
+    }
+
+    @Test
+    void replaysOnceAcrossReopens() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsJournal journal = new SettingsJournal(settings, this.dir.resolve("settings.json"))) {
+            journal.open();
+            settings.tags.add("d");
+        }
+        // opening replays the journal without recording it again
+        TestSettings reopened = new TestSettings();
+        try (SettingsJournal journal = new SettingsJournal(reopened, this.dir.resolve("settings.json"))) {
+            journal.open();
+            reopened.tags.add("e");
+        }
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), tags(this.reopen()));
+        assertEquals(List.of("a", "b", "c", "d", "e"), tags(this.reopen()));
+    }
+
+    @Test
+    void writesOneRecordPerWriteSection() throws IOException {
+        TestSettings settings = new TestSettings();
+        Path snapshot = this.dir.resolve("settings.json");
+        try (SettingsJournal journal = new SettingsJournal(settings, snapshot)) {
+            journal.open();
+            settings.edit();
+            settings.count.setInt(1);
+            assertEquals(2, Files.readAllLines(journal.getJournal()).size());
+        }
+        assertEquals(TestSettings.json(settings), TestSettings.json(this.reopen()));
+    }
+
+    @Test
+    void replaysAfterCompaction() throws IOException {
+        TestSettings settings = new TestSettings();
+        Path snapshot = this.dir.resolve("settings.json");
+        try (SettingsJournal journal = new SettingsJournal(settings, snapshot, 3)) {
+            journal.open();
+            for (int i = 0; i < 7; i++) {
+                settings.count.setInt(i);
+                settings.tags.add("t" + i);
+            }
+            assertTrue(Files.exists(snapshot));
+            assertTrue(Files.readAllLines(journal.getJournal()).size() < 3);
+        }
+
+        TestSettings reopened = this.reopen();
+        assertEquals(TestSettings.json(settings), TestSettings.json(reopened));
+        assertEquals(10, reopened.tags.size());
+    }
+
+    @Test
+    void dropsIncompleteRecord() throws IOException {
+        TestSettings settings = new TestSettings();
+        Path snapshot = this.dir.resolve("settings.json");
+        Path journalFile;
+        try (SettingsJournal journal = new SettingsJournal(settings, snapshot)) {
+            journal.open();
+            settings.count.setInt(9);
+            journalFile = journal.getJournal();
+        }
+        long complete = Files.size(journalFile);
+        // a record cut short by a crash
+        Files.write(journalFile, "{\"sequence\":2,\"changes\":{\"count\":".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        TestSettings reopened = this.reopen();
+        assertEquals(9, reopened.count.getInt());
+        assertEquals(complete, Files.size(journalFile));
+    }
+
+}
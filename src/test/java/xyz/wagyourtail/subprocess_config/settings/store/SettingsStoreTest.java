@@ -0,0 +1,125 @@
+package xyz.wagyourtail.subprocess_config.settings.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import xyz.wagyourtail.subprocess_config.settings.TestSettings;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettingsStoreTest {
+    @TempDir
+    Path dir;
+
+    private Path file() {
+        return this.dir.resolve("settings.json");
+    }
+
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(this.dir)) {
+            return files.toList();
+        }
+    }
+
+    @Test
+    void savesAndLoads() throws IOException {
+        TestSettings settings = new TestSettings().edit();
+        try (SettingsStore store = new SettingsStore(settings, this.file())) {
+            assertTrue(store.save());
+        }
+        // only the file itself is left behind, the temporary file it was written to has been moved over it
+        assertEquals(List.of(this.file()), this.files());
+
+        TestSettings loaded = new TestSettings();
+        try (SettingsStore store = new SettingsStore(loaded, this.file())) {
+            assertTrue(store.load());
+        }
+        assertEquals(TestSettings.json(settings), TestSettings.json(loaded));
+    }
+
+    @Test
+    void skipsUnchangedSave() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsStore store = new SettingsStore(settings, this.file())) {
+            assertTrue(store.save());
+            FileTime written = FileTime.fromMillis(0);
+            Files.setLastModifiedTime(this.file(), written);
+
+            assertFalse(store.save());
+            assertFalse(store.load());
+            assertEquals(written, Files.getLastModifiedTime(this.file()));
+
+            settings.count.setInt(2);
+            assertTrue(store.save());
+            assertFalse(store.save());
+        }
+    }
+
+    @Test
+    void loadsNothingWithoutFile() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsStore store = new SettingsStore(settings, this.file())) {
+            assertFalse(store.load());
+        }
+        assertEquals(TestSettings.json(new TestSettings()), TestSettings.json(settings));
+    }
+
+    @Test
+    void failedLoadLeavesSettings() throws IOException {
+        Files.writeString(this.file(), "{\"count\":5,\"name\":\"changed\",\"big\":");
+        TestSettings settings = new TestSettings();
+        try (SettingsStore store = new SettingsStore(settings, this.file())) {
+            assertThrows(IOException.class, store::load);
+        }
+        assertEquals(TestSettings.json(new TestSettings()), TestSettings.json(settings));
+    }
+
+    @Test
+    void autosavesChanges() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsStore store = new SettingsStore(settings, this.file())) {
+            store.autosave(Runnable::run);
+            settings.count.setInt(7);
+        }
+        TestSettings loaded = new TestSettings();
+        try (SettingsStore store = new SettingsStore(loaded, this.file())) {
+            store.load();
+        }
+        assertEquals(7, loaded.count.getInt());
+    }
+
+    @Test
+    void reloadsWatchedFile() throws IOException {
+        TestSettings settings = new TestSettings();
+        try (SettingsStore store = new SettingsStore(settings, this.file())) {
+            store.save();
+            store.watch();
+            // edited by something else
+            TestSettings edited = new TestSettings();
+            edited.count.setInt(9);
+            edited.name.set("external");
+            SettingsStore.write(this.file(), TestSettings.json(edited).getBytes(StandardCharsets.UTF_8));
+
+            assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                // written after count
+                while (!settings.name.get().equals("external")) {
+                    Thread.sleep(20);
+                }
+            });
+            assertEquals(9, settings.count.getInt());
+        }
+    }
+
+}